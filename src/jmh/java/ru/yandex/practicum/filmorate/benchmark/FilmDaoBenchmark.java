@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение фильмов из БД в обход кеша фильмов и индексов.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilmDaoBenchmark {
+    private static final int TOP_COUNT = 10;
+
+    private FilmDao filmDao;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setUp(SeededDatabase database) {
+        filmDao = database.getBean("filmDaoImpl", FilmDao.class);
+        jdbcTemplate = database.getBean(JdbcTemplate.class);
+    }
+
+    @Benchmark
+    public List<Film> getFilms() {
+        return filmDao.getFilms();
+    }
+
+    @Benchmark
+    public Film getById(SeededDatabase database) {
+        return filmDao.getById(database.randomFilmId());
+    }
+
+    @Benchmark
+    public List<Film> getTopFilms() {
+        return filmDao.getTopFilms(TOP_COUNT);
+    }
+
+    /**
+     * Самые популярные фильмы по счётчику лайков; только id, чтобы сравнить с группировкой ниже.
+     */
+    @Benchmark
+    public List<Integer> getTopFilmIdsByLikeCount() {
+        return jdbcTemplate.queryForList("SELECT id FROM films ORDER BY like_count DESC, id LIMIT ?",
+                Integer.class, TOP_COUNT);
+    }
+
+    /**
+     * Прежний запрос популярных фильмов: подсчёт лайков группировкой film_likes при каждом чтении.
+     */
+    @Benchmark
+    public List<Integer> getTopFilmIdsByGroupingLikes() {
+        return jdbcTemplate.queryForList("SELECT f.id FROM films AS f " +
+                "LEFT JOIN film_likes AS lk ON f.id = lk.film_id " +
+                "GROUP BY f.id ORDER BY COUNT(lk.user_id) DESC, f.id LIMIT ?", Integer.class, TOP_COUNT);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.DBFilmService;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сервис фильмов целиком: проверки, индексы в памяти, кеш фильмов и запись в БД.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilmServiceBenchmark {
+    private static final int LIMIT = 10;
+
+    private DBFilmService filmService;
+
+    @Setup
+    public void setUp(SeededDatabase database) {
+        filmService = database.getBean(DBFilmService.class);
+    }
+
+    /**
+     * Лайк и его снятие, чтобы данные не менялись от итерации к итерации. Лайки ставит пользователь
+     * без заполненных лайков, поэтому в один поток: параллельные лайки того же фильма конфликтовали бы.
+     */
+    @Benchmark
+    @Threads(1)
+    public void addLike(SeededDatabase database) {
+        int filmId = database.randomFilmId();
+        filmService.addLike(filmId, database.getSpareUserId());
+        filmService.deleteLike(filmId, database.getSpareUserId());
+    }
+
+    @Benchmark
+    public List<Film> getTopFilms() {
+        return filmService.getTopFilms(LIMIT, null, null);
+    }
+
+    @Benchmark
+    public List<Film> getRecommendations(SeededDatabase database) {
+        return filmService.getRecommendations(database.randomUserId(), LIMIT);
+    }
+
+    @Benchmark
+    public List<Film> searchFilms() {
+        String[] words = SeededDatabase.WORDS;
+        return filmService.searchFilms(words[ThreadLocalRandom.current().nextInt(words.length)], 0, LIMIT);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.dao.user.FriendDao;
+import ru.yandex.practicum.filmorate.storage.index.FriendIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общие друзья случайной пары пользователей: запросом к БД и по индексу друзей в памяти.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FriendDaoBenchmark {
+    private FriendDao friendDao;
+    private FriendIndex friendIndex;
+
+    @Setup
+    public void setUp(SeededDatabase database) {
+        friendDao = database.getBean(FriendDao.class);
+        friendIndex = database.getBean(FriendIndex.class);
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(SeededDatabase database) {
+        return friendDao.getCommonFriends(database.randomUserId(), database.randomUserId());
+    }
+
+    @Benchmark
+    public int[] getCommonFriendIdsFromIndex(SeededDatabase database) {
+        return friendIndex.getCommonFriends(database.randomUserId(), database.randomUserId());
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.IdSet;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IdSet против HashSet&lt;Integer&gt; для лайков и друзей. Для build* показатель gc.alloc.rate.norm
+ * профилировщика gc — байты на построение множества: занятая им память вместе с массивами,
+ * выброшенными при росте.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdSetBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private int[] ids;
+    private IdSet idSet;
+    private Set<Integer> hashSet;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = 1 + random.nextInt(10 * size);
+        }
+        idSet = buildIdSet();
+        hashSet = buildHashSet();
+    }
+
+    @Benchmark
+    public IdSet buildIdSet() {
+        IdSet set = new IdSet();
+        for (int id : ids) {
+            set.addId(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public Set<Integer> buildHashSet() {
+        Set<Integer> set = new HashSet<>();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public boolean containsIdSet() {
+        return idSet.containsId(ids[ThreadLocalRandom.current().nextInt(size)]);
+    }
+
+    @Benchmark
+    public boolean containsHashSet() {
+        return hashSet.contains(ids[ThreadLocalRandom.current().nextInt(size)]);
+    }
+}
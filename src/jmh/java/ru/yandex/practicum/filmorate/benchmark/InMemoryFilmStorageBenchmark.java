@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Популярные фильмы хранилища в памяти: сортировка всех фильмов по числу лайков при каждом запросе.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InMemoryFilmStorageBenchmark {
+    private static final int TOP_COUNT = 10;
+
+    @Param("10000")
+    public int users;
+    @Param("5000")
+    public int films;
+    @Param("20")
+    public int likesPerUser;
+
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        Random random = new Random(42);
+        Film[] created = new Film[films];
+        for (int i = 0; i < films; i++) {
+            Film film = new Film();
+            film.setName("film " + i);
+            film.setDuration(90);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setMpa(new Mpa(1, "G"));
+            created[i] = filmStorage.createFilm(film);
+        }
+        // как в SeededDatabase: фильмы из начала списка получают заметно больше лайков
+        for (int userId = 1; userId <= users; userId++) {
+            for (int like = 0; like < likesPerUser; like++) {
+                created[(int) (films * Math.pow(random.nextDouble(), 2))].getLikes().addId(userId);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Film> getTopFilms() {
+        return filmStorage.getTopFilms(TOP_COUNT);
+    }
+}
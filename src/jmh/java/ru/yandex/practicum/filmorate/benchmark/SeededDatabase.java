@@ -0,0 +1,210 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.user.UserDao;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.storage.index.PopularityIndex;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Приложение без веб-сервера над H2 в памяти, заполненной данными заданного размера.
+ * Популярность фильмов и пользователей неравномерная: малые id получают заметно больше лайков и друзей.
+ * Данные одинаковы от запуска к запуску, поэтому результаты можно сравнивать.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+    static final String[] WORDS = {"ночь", "город", "море", "машина", "время", "дом", "война", "любовь",
+            "звезда", "дорога", "тень", "остров", "night", "city", "road", "star"};
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+
+    @Param("10000")
+    public int users;
+    @Param("5000")
+    public int films;
+    @Param("20")
+    public int likesPerUser;
+    @Param("20")
+    public int friendsPerUser;
+
+    private ConfigurableApplicationContext context;
+    private int[] userIds;
+    private int[] filmIds;
+    // пользователь без лайков и друзей, его лайки не пересекаются с заполненными
+    private int spareUserId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--filmorate.likes.repair-on-startup=false",
+                        "--filmorate.friends.suggestions.precompute-enabled=false",
+                        "--logging.level.ru.yandex.practicum=warn");
+        Random random = new Random(42);
+        seedUsers();
+        seedFilms(random);
+        seedLikes(random);
+        seedFriends(random);
+        getBean(JdbcTemplate.class).execute("ANALYZE");
+
+        // индексы собраны при старте по пустой базе
+        getBean(PopularityIndex.class).rebuild();
+        getBean(LikeMatrix.class).rebuild();
+        getBean(FriendIndex.class).rebuild();
+        getBean(FilmSearchIndex.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public <T> T getBean(String name, Class<T> type) {
+        return context.getBean(name, type);
+    }
+
+    public int randomUserId() {
+        return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+    }
+
+    public int randomFilmId() {
+        return filmIds[ThreadLocalRandom.current().nextInt(filmIds.length)];
+    }
+
+    public int getSpareUserId() {
+        return spareUserId;
+    }
+
+    private void seedUsers() {
+        UserDao userDao = getBean("userDaoImpl", UserDao.class);
+        userIds = new int[users];
+        List<User> chunk = new ArrayList<>();
+        for (int i = 0; i <= users; i++) {
+            chunk.add(User.builder()
+                    .email("user" + i + "@benchmark.ru")
+                    .login("user" + i)
+                    .name("User " + i)
+                    .birthday(LocalDate.of(1960 + i % 45, 1 + i % 12, 1 + i % 28))
+                    .build());
+            if (chunk.size() == CHUNK_SIZE || i == users) {
+                for (User user : userDao.createUsers(chunk)) {
+                    int index = Integer.parseInt(user.getLogin().substring("user".length()));
+                    if (index == users) {
+                        spareUserId = user.getId();
+                    } else {
+                        userIds[index] = user.getId();
+                    }
+                }
+                chunk.clear();
+            }
+        }
+    }
+
+    private void seedFilms(Random random) {
+        FilmDao filmDao = getBean("filmDaoImpl", FilmDao.class);
+        GenreDao genreDao = getBean(GenreDao.class);
+        filmIds = new int[films];
+        int created = 0;
+        List<Film> chunk = new ArrayList<>();
+        for (int i = 0; i < films; i++) {
+            chunk.add(Film.builder()
+                    .name(word(random) + " " + word(random) + " " + i)
+                    .description(word(random) + " " + word(random) + " " + word(random))
+                    .duration(80 + random.nextInt(100))
+                    .releaseDate(LocalDate.of(1950 + random.nextInt(75), 1 + random.nextInt(12), 1))
+                    .mpa(new Mpa(1 + random.nextInt(MPA_RATINGS), null))
+                    .build());
+            if (chunk.size() == CHUNK_SIZE || i == films - 1) {
+                Map<Integer, List<Integer>> filmsGenres = new HashMap<>();
+                for (Film film : filmDao.createFilms(chunk)) {
+                    filmIds[created++] = film.getId();
+                    filmsGenres.put(film.getId(), List.of(1 + random.nextInt(GENRES)));
+                }
+                genreDao.addFilmsGenres(filmsGenres);
+                chunk.clear();
+            }
+        }
+    }
+
+    private void seedLikes(Random random) {
+        FilmLikesDao filmLikesDao = getBean(FilmLikesDao.class);
+        int perUser = Math.min(likesPerUser, films);
+        List<int[]> likes = new ArrayList<>();
+        for (int userId : userIds) {
+            for (int filmId : pickDistinct(random, filmIds, perUser, 0)) {
+                likes.add(new int[]{filmId, userId});
+            }
+            if (likes.size() >= CHUNK_SIZE) {
+                filmLikesDao.writeLikes(likes, List.of());
+                likes.clear();
+            }
+        }
+        filmLikesDao.writeLikes(likes, List.of());
+    }
+
+    private void seedFriends(Random random) {
+        int perUser = Math.min(friendsPerUser, users - 1);
+        List<int[]> friendships = new ArrayList<>();
+        for (int userId : userIds) {
+            for (int friendId : pickDistinct(random, userIds, perUser, userId)) {
+                friendships.add(new int[]{userId, friendId});
+            }
+        }
+        getBean(JdbcTemplate.class).batchUpdate("INSERT INTO friendship (user_id, friend_user_id) VALUES (?, ?)",
+                friendships, CHUNK_SIZE, (ps, friendship) -> {
+                    ps.setInt(1, friendship[0]);
+                    ps.setInt(2, friendship[1]);
+                });
+    }
+
+    /**
+     * count разных id из ids, кроме excluded; квадрат равномерного числа смещает выбор к началу массива.
+     */
+    private static Set<Integer> pickDistinct(Random random, int[] ids, int count, int excluded) {
+        Set<Integer> picked = new HashSet<>();
+        while (picked.size() < count) {
+            int id = ids[(int) (ids.length * Math.pow(random.nextDouble(), 2))];
+            if (id != excluded) {
+                picked.add(id);
+            }
+        }
+        return picked;
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
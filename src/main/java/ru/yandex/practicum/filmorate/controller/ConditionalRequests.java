@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.storage.cache.ResourceVersions;
+
+/**
+ * Условные GET-запросы: ETag считается по версии ресурса, и запрос с совпадающим If-None-Match
+ * получает 304 до обращения к сервисам и БД. Метрика filmorate.http.conditional.requests
+ * считает ответы 304 и 200 по каждому виду ресурса.
+ */
+@Component
+@RequiredArgsConstructor
+class ConditionalRequests {
+    private final ResourceVersions resourceVersions;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Ставит ETag фильма в ответ; true, если клиенту можно ответить 304.
+     */
+    boolean filmNotModified(WebRequest request, int filmId) {
+        return notModified(request, "film", resourceVersions.filmTag(filmId));
+    }
+
+    /**
+     * Ставит ETag справочника в ответ; true, если клиенту можно ответить 304.
+     */
+    boolean referenceNotModified(WebRequest request, String resource) {
+        return notModified(request, resource, resourceVersions.referenceTag());
+    }
+
+    private boolean notModified(WebRequest request, String resource, String etag) {
+        boolean notModified = request.checkNotModified(etag);
+        meterRegistry.counter("filmorate.http.conditional.requests",
+                "resource", resource,
+                "result", notModified ? "not_modified" : "ok").increment();
+        return notModified;
+    }
+}
@@ -1,13 +1,21 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.DBFilmService;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -16,12 +24,24 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FilmController {
     private final DBFilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final ConditionalRequests conditionalRequests;
 
     @PostMapping
     public Film create(@Valid @RequestBody Film film) {
         return filmService.create(film);
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult> createBatch(@RequestBody List<Film> films) {
+        return filmService.createFilms(films.iterator());
+    }
+
+    @PostMapping(value = "/batch", consumes = JsonStreams.NDJSON_VALUE)
+    public List<BatchItemResult> createBatchStream(HttpServletRequest request) throws IOException {
+        return filmService.createFilms(JsonStreams.ndjson(objectMapper, request.getInputStream(), Film.class));
+    }
+
     @PutMapping
     public Film update(@Valid @RequestBody Film film) {
         return filmService.update(film);
@@ -38,18 +58,41 @@ public class FilmController {
     }
 
     @GetMapping
-    public List<Film> getFilms() {
-        return filmService.getFilms();
+    public ResponseEntity<List<Film>> getFilms(@RequestParam(value = "after", required = false) Integer after,
+                                               @RequestParam(value = "limit", required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(filmService.getFilms());
+        }
+        int pageLimit = Pages.limitOrDefault(limit);
+        return Pages.response(filmService.getFilmsPage(after, pageLimit), pageLimit, Film::getId);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody exportFilms() {
+        return JsonStreams.jsonArray(objectMapper, filmService::exportFilms);
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam("query") String query,
+                                  @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                  @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return filmService.searchFilms(query, offset, limit);
     }
 
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable("id") Integer filmId) {
+    public Film getFilmById(@PathVariable("id") Integer filmId, WebRequest request) {
+        // для неизвестного id ETag не выдаётся, иначе If-None-Match: * получил бы 304 вместо 404
+        if (filmService.hasFilm(filmId) && conditionalRequests.filmNotModified(request, filmId)) {
+            return null;
+        }
         return filmService.getFilm(filmId);
     }
 
     @GetMapping("/popular")
     public List<Film> getTopFilms(
-            @Positive @RequestParam(value = "count", defaultValue = "10") Integer count) {
-        return filmService.getTopFilms(count);
+            @Positive @RequestParam(value = "count", defaultValue = "10") Integer count,
+            @RequestParam(value = "genreId", required = false) Integer genreId,
+            @RequestParam(value = "year", required = false) Integer year) {
+        return filmService.getTopFilms(count, genreId, year);
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.DBGenreService;
 
@@ -17,14 +18,23 @@ import java.util.List;
 @RequiredArgsConstructor
 public class GenreController {
     private final DBGenreService genreService;
+    private final ConditionalRequests conditionalRequests;
 
     @GetMapping("/{id}")
-    public Genre getGenre(@PathVariable Integer id) {
-        return genreService.getGenre(id);
+    public Genre getGenre(@PathVariable Integer id, WebRequest request) {
+        // жанр берётся из кеша справочника до проверки ETag: неизвестный id получает 404, а не 304
+        Genre genre = genreService.getGenre(id);
+        if (conditionalRequests.referenceNotModified(request, "genres")) {
+            return null;
+        }
+        return genre;
     }
 
     @GetMapping
-    public List<Genre> getAllGenres() {
+    public List<Genre> getAllGenres(WebRequest request) {
+        if (conditionalRequests.referenceNotModified(request, "genres")) {
+            return null;
+        }
         return genreService.getAllGenres();
     }
 }
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Записывает JSON-массив в ответ по мере поступления элементов, не собирая их в список,
+ * и читает NDJSON-запросы по одному объекту.
+ */
+final class JsonStreams {
+    static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private JsonStreams() {
+    }
+
+    static <T> StreamingResponseBody jsonArray(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                source.accept(item -> {
+                    try {
+                        writer.writeValue(generator, item);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * Элементы читаются построчно по мере обхода итератора; пустые строки пропускаются.
+     * Для некорректной строки next() выбрасывает ValidationException, а обход можно продолжить со следующей.
+     */
+    static <T> Iterator<T> ndjson(ObjectMapper objectMapper, InputStream in, Class<T> type) {
+        ObjectReader reader = objectMapper.readerFor(type);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return new Iterator<>() {
+            private String line;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (line == null) {
+                        String next = lines.readLine();
+                        if (next == null) {
+                            return false;
+                        }
+                        if (!next.isBlank()) {
+                            line = next;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String current = line;
+                line = null;
+                try {
+                    return reader.readValue(current);
+                } catch (JsonProcessingException e) {
+                    throw new ValidationException("Malformed NDJSON item: " + e.getOriginalMessage(), e);
+                }
+            }
+        };
+    }
+}
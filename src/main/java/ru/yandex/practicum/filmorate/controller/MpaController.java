@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.DBMpaService;
 
@@ -17,14 +18,23 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MpaController {
     private final DBMpaService mpaService;
+    private final ConditionalRequests conditionalRequests;
 
     @GetMapping("/{id}")
-    public Mpa getMpa(@PathVariable int id) {
-        return mpaService.getMpa(id);
+    public Mpa getMpa(@PathVariable int id, WebRequest request) {
+        // рейтинг берётся из кеша справочника до проверки ETag: неизвестный id получает 404, а не 304
+        Mpa mpa = mpaService.getMpa(id);
+        if (conditionalRequests.referenceNotModified(request, "mpa")) {
+            return null;
+        }
+        return mpa;
     }
 
     @GetMapping
-    public List<Mpa> getAllMpa() {
+    public List<Mpa> getAllMpa(WebRequest request) {
+        if (conditionalRequests.referenceNotModified(request, "mpa")) {
+            return null;
+        }
         return mpaService.getAllMpa();
     }
 }
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Постраничная выдача по курсору: клиент передаёт id последнего полученного элемента в параметре after,
+ * а id для запроса следующей страницы возвращается в заголовке X-Next-Cursor.
+ */
+final class Pages {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_LIMIT = 100;
+
+    private Pages() {
+    }
+
+    static int limitOrDefault(Integer limit) {
+        return limit == null ? DEFAULT_LIMIT : limit;
+    }
+
+    static <T> ResponseEntity<List<T>> response(List<T> page, int limit, Function<T, Integer> idExtractor) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (!page.isEmpty() && page.size() == limit) {
+            builder.header(NEXT_CURSOR_HEADER, String.valueOf(idExtractor.apply(page.get(page.size() - 1))));
+        }
+        return builder.body(page);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.storage.dao.SqlStatementCounter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Считает SQL-запросы каждого HTTP-запроса. Число запросов и время их выполнения пишутся в лог после обработки,
+ * а если включено, то и в заголовки X-SQL-Statements и X-SQL-Time-Ms перед записью тела ответа
+ * (SqlStatementsHeaders).
+ * Если один и тот же текст запроса выполнен repeated-statement-threshold раз и больше, в лог пишется
+ * предупреждение о возможном N+1.
+ */
+@Component
+@Slf4j
+public class SqlStatementsFilter extends OncePerRequestFilter {
+    static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    static final String TIME_HEADER = "X-SQL-Time-Ms";
+
+    private final SqlStatementCounter statementCounter;
+    private final int repeatedStatementThreshold;
+
+    public SqlStatementsFilter(SqlStatementCounter statementCounter,
+                               @Value("${filmorate.sql.repeated-statement-threshold}") int repeatedStatementThreshold) {
+        this.statementCounter = statementCounter;
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.Statistics statistics = statementCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            statementCounter.stop();
+            report(request, statistics);
+        }
+    }
+
+    private void report(HttpServletRequest request, SqlStatementCounter.Statistics statistics) {
+        log.debug("{} {} executed {} SQL statements in {} ms", request.getMethod(), request.getRequestURI(),
+                statistics.getStatements(), statistics.getMillis());
+        statistics.getExecutionsBySql().forEach((sql, executions) -> {
+            if (executions >= repeatedStatementThreshold) {
+                log.warn("{} {} executed the same SQL statement {} times, possible N+1: {}",
+                        request.getMethod(), request.getRequestURI(), executions, sql);
+            }
+        });
+    }
+}
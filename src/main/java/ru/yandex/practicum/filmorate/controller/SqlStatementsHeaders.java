@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import ru.yandex.practicum.filmorate.storage.dao.SqlStatementCounter;
+
+/**
+ * Пишет статистику SQL-запросов из SqlStatementsFilter в заголовки перед записью тела ответа,
+ * пока ответ ещё не отправлен. Для потоковых ответов статистика попадает только в лог.
+ * Заголовки раскрывают клиентам внутреннее устройство, поэтому по умолчанию выключены
+ * (filmorate.sql.statement-headers.enabled).
+ */
+@RestControllerAdvice
+class SqlStatementsHeaders implements ResponseBodyAdvice<Object> {
+    private final SqlStatementCounter statementCounter;
+    private final boolean enabled;
+
+    SqlStatementsHeaders(SqlStatementCounter statementCounter,
+                         @Value("${filmorate.sql.statement-headers.enabled}") boolean enabled) {
+        this.statementCounter = statementCounter;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return enabled;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStatementCounter.Statistics statistics = statementCounter.current();
+        if (statistics != null) {
+            HttpHeaders headers = response.getHeaders();
+            headers.set(SqlStatementsFilter.STATEMENTS_HEADER, String.valueOf(statistics.getStatements()));
+            headers.set(SqlStatementsFilter.TIME_HEADER, String.valueOf(statistics.getMillis()));
+        }
+        return body;
+    }
+}
@@ -1,12 +1,21 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DBFilmService;
 import ru.yandex.practicum.filmorate.service.DBUserService;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -15,12 +24,24 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserController {
     private final DBUserService userService;
+    private final DBFilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public User create(@Valid @RequestBody User user) {
         return userService.create(user);
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult> createBatch(@RequestBody List<User> users) {
+        return userService.createUsers(users.iterator());
+    }
+
+    @PostMapping(value = "/batch", consumes = JsonStreams.NDJSON_VALUE)
+    public List<BatchItemResult> createBatchStream(HttpServletRequest request) throws IOException {
+        return userService.createUsers(JsonStreams.ndjson(objectMapper, request.getInputStream(), User.class));
+    }
+
     @PutMapping
     public User update(@Valid @RequestBody User user) {
         return userService.update(user);
@@ -37,8 +58,18 @@ public class UserController {
     }
 
     @GetMapping
-    public List<User> getUsers() {
-        return userService.getUsers();
+    public ResponseEntity<List<User>> getUsers(@RequestParam(value = "after", required = false) Integer after,
+                                               @RequestParam(value = "limit", required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.getUsers());
+        }
+        int pageLimit = Pages.limitOrDefault(limit);
+        return Pages.response(userService.getUsersPage(after, pageLimit), pageLimit, User::getId);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody exportUsers() {
+        return JsonStreams.jsonArray(objectMapper, userService::exportUsers);
     }
 
     @GetMapping("/{id}")
@@ -51,8 +82,20 @@ public class UserController {
         return userService.getUserFriends(userId);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable("id") Integer id,
+                                           @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return userService.getFriendSuggestions(id, limit);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable("id") Integer id, @PathVariable("otherId") Integer otherId) {
         return userService.getCommonFriends(id, otherId);
     }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable("id") Integer id,
+                                         @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return filmService.getRecommendations(id, limit);
+    }
 }
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат обработки одного элемента пакетного запроса:
+ * index — позиция элемента в запросе, id — присвоенный идентификатор или error — причина отказа.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    private int index;
+    private Integer id;
+    private String error;
+
+    public static BatchItemResult created(int index, Integer id) {
+        return new BatchItemResult(index, id, null);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, null, error);
+    }
+}
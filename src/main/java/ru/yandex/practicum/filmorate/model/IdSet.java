@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Множество id без упаковки в Integer: открытая адресация в массиве int,
+ * около 5–11 байт на элемент вместо ~48 байт у HashSet&lt;Integer&gt;.
+ * Методы синхронизированы; итератор обходит отсортированный снимок.
+ * Для API это обычный Set&lt;Integer&gt;, в JSON — массив чисел.
+ */
+public class IdSet extends AbstractSet<Integer> {
+    private static final int EMPTY = 0; // ноль хранится отдельным флагом
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] table = new int[MIN_CAPACITY];
+    private int size; // число ненулевых элементов в table
+    private boolean containsZero;
+
+    public IdSet() {
+    }
+
+    public IdSet(Collection<Integer> ids) {
+        addAll(ids);
+    }
+
+    public synchronized boolean addId(int id) {
+        if (id == EMPTY) {
+            boolean added = !containsZero;
+            containsZero = true;
+            return added;
+        }
+        int slot = slot(id);
+        if (table[slot] == id) {
+            return false;
+        }
+        if ((size + 1) * 4 > table.length * 3) {
+            resize(table.length * 2);
+            slot = slot(id);
+        }
+        table[slot] = id;
+        size++;
+        return true;
+    }
+
+    public synchronized boolean removeId(int id) {
+        if (id == EMPTY) {
+            boolean removed = containsZero;
+            containsZero = false;
+            return removed;
+        }
+        int hole = slot(id);
+        if (table[hole] != id) {
+            return false;
+        }
+        // Сдвигаем назад элементы той же цепочки, чтобы не оставлять удалённых меток
+        int mask = table.length - 1;
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            int value = table[next];
+            if (value == EMPTY) {
+                break;
+            }
+            int home = hash(value) & mask;
+            boolean homeInRange = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!homeInRange) {
+                table[hole] = value;
+                hole = next;
+            }
+        }
+        table[hole] = EMPTY;
+        size--;
+        if (table.length > MIN_CAPACITY && size * 8 < table.length) {
+            resize(table.length / 2);
+        }
+        return true;
+    }
+
+    public synchronized boolean containsId(int id) {
+        if (id == EMPTY) {
+            return containsZero;
+        }
+        return table[slot(id)] == id;
+    }
+
+    /**
+     * Элементы по возрастанию.
+     */
+    public synchronized int[] toIntArray() {
+        int[] ids = new int[size()];
+        int count = 0;
+        if (containsZero) {
+            ids[count++] = EMPTY;
+        }
+        for (int value : table) {
+            if (value != EMPTY) {
+                ids[count++] = value;
+            }
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Общие элементы двух множеств по возрастанию. Перебирается меньшее множество,
+     * и блокировки двух множеств не захватываются одновременно.
+     */
+    public int[] intersect(IdSet other) {
+        IdSet smaller = size() <= other.size() ? this : other;
+        IdSet larger = smaller == this ? other : this;
+        int[] candidates = smaller.toIntArray();
+        int count = 0;
+        for (int id : candidates) {
+            if (larger.containsId(id)) {
+                candidates[count++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    @Override
+    public boolean add(Integer id) {
+        return addId(id);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer && removeId((Integer) o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && containsId((Integer) o);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size + (containsZero ? 1 : 0);
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = new int[MIN_CAPACITY];
+        size = 0;
+        containsZero = false;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        int[] snapshot = toIntArray();
+        return new Iterator<>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < snapshot.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[position++];
+            }
+
+            @Override
+            public void remove() {
+                if (position == 0) {
+                    throw new IllegalStateException();
+                }
+                removeId(snapshot[position - 1]);
+            }
+        };
+    }
+
+    @Override
+    public synchronized int hashCode() {
+        int hash = 0;
+        for (int value : table) {
+            hash += value; // Integer.hashCode(value) == value, ноль не влияет на сумму
+        }
+        return hash;
+    }
+
+    private int slot(int id) {
+        int mask = table.length - 1;
+        int slot = hash(id) & mask;
+        while (table[slot] != EMPTY && table[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        int[] old = table;
+        table = new int[capacity];
+        for (int value : old) {
+            if (value != EMPTY) {
+                table[slot(value)] = value;
+            }
+        }
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
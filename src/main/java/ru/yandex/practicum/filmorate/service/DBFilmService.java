@@ -3,103 +3,375 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.cache.FilmCache;
+import ru.yandex.practicum.filmorate.storage.cache.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
-import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
 import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.MpaDao;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.storage.index.PopularityIndex;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class DBFilmService {
+    private static final int MAX_PAGE_LIMIT = 1000;
+    private static final int MAX_SEARCH_OFFSET = 10_000;
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     private final FilmDao filmDao;
     private final DBUserService userService;
     private final GenreDao genreDao;
-    private final FilmLikesDao filmLikesDao;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final PopularityIndex popularityIndex;
+    private final LikeMatrix likeMatrix;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmCache filmCache;
+    private final ResourceVersions resourceVersions;
+    private final MpaDao mpaDao;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public DBFilmService(@Qualifier("filmDaoImpl") FilmDao filmDao, DBUserService userService,
-                         GenreDao genreDao, FilmLikesDao filmLikesDao) {
+                         GenreDao genreDao, LikeWriteBuffer likeWriteBuffer, PopularityIndex popularityIndex,
+                         LikeMatrix likeMatrix, FilmSearchIndex filmSearchIndex, FilmCache filmCache,
+                         ResourceVersions resourceVersions, MpaDao mpaDao, Validator validator,
+                         TransactionTemplate transactionTemplate) {
         this.filmDao = filmDao;
         this.userService = userService;
         this.genreDao = genreDao;
-        this.filmLikesDao = filmLikesDao;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.popularityIndex = popularityIndex;
+        this.likeMatrix = likeMatrix;
+        this.filmSearchIndex = filmSearchIndex;
+        this.filmCache = filmCache;
+        this.resourceVersions = resourceVersions;
+        this.mpaDao = mpaDao;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
     }
 
+    @Transactional
     public Film create(Film film) {
+        Set<Genre> genres = resolveGenres(film.getGenres());
         Film newFilm = filmDao.createFilm(film);
-        if (film.getGenres() == null || film.getGenres().isEmpty()) {
-            newFilm.setGenres(new HashSet<>());
-            log.info("The film {} has no genres.", film);
-        } else {
-            for (Genre genre : film.getGenres()) {
-                genreDao.addGenreInFilm(newFilm.getId(), genre.getId());
+        genreDao.addFilmGenres(newFilm.getId(), genreIds(genres));
+        newFilm.setGenres(genres);
+        afterCommit(() -> {
+            popularityIndex.putFilm(newFilm.getId(), genreIds(genres), releaseYear(newFilm));
+            filmSearchIndex.putFilm(newFilm);
+        });
+        filmChanged(newFilm.getId());
+        log.info("Film {} has been CREATED", newFilm);
+        return newFilm;
+    }
+
+    /**
+     * Пакетное добавление фильмов. Каждый элемент проверяется отдельно, прошедшие проверку
+     * записываются порциями по BATCH_CHUNK_SIZE, каждая порция — в своей транзакции.
+     */
+    public List<BatchItemResult> createFilms(Iterator<Film> films) {
+        List<BatchItemResult> results = new ArrayList<>();
+        Set<String> batchNames = new HashSet<>();
+        Map<Integer, Film> chunk = new LinkedHashMap<>();
+        int index = 0;
+        while (films.hasNext()) {
+            Film film;
+            try {
+                film = films.next();
+            } catch (ValidationException e) {
+                // строку не удалось прочитать: ошибку получает только она, остальные обрабатываются как обычно
+                results.add(BatchItemResult.failed(index++, e.getMessage()));
+                continue;
+            }
+            String error = prepareBatchFilm(film, batchNames);
+            if (error != null) {
+                results.add(BatchItemResult.failed(index, error));
+            } else {
+                chunk.put(index, film);
+            }
+            if (chunk.size() == BATCH_CHUNK_SIZE) {
+                results.addAll(createChunk(chunk));
+                chunk.clear();
             }
-            newFilm.setGenres(genreDao.getFilmGenres(film.getId()));
+            index++;
         }
-        log.info("Film {} has been CREATED", film);
-        return newFilm;
+        results.addAll(createChunk(chunk));
+        results.sort(Comparator.comparingInt(BatchItemResult::getIndex));
+        log.info("Batch of {} films has been PROCESSED", index);
+        return results;
     }
 
+    @Transactional
     public Film update(Film film) {
-        if (film.getId() == null || !filmDao.checkFilmExist(film.getId())) {
+        if (film.getId() == null) {
             throw new NotFoundException("Can't update film with ID = null");
         }
+        Set<Integer> currentGenreIds = filmDao.findFilmGenreIds(film.getId())
+                .orElseThrow(() -> new NotFoundException(String.format("Film ID = %d does not exist", film.getId())));
 
-        if (film.getGenres() == null || film.getGenres().isEmpty()) {
-            genreDao.deleteFilmGenre(film.getId());
-            film.setGenres(new HashSet<>());
-            log.info("The film {} has no genres.", film);
-        } else {
-            genreDao.deleteFilmGenre(film.getId());
-            for (Genre genre : film.getGenres()) {
-                genreDao.addGenreInFilm(film.getId(), genre.getId());
-            }
-            film.setGenres(genreDao.getFilmGenres(film.getId()));
-        }
+        Set<Genre> genres = resolveGenres(film.getGenres());
+        Set<Integer> newGenreIds = genreIds(genres);
+        Set<Integer> removedGenreIds = new HashSet<>(currentGenreIds);
+        removedGenreIds.removeAll(newGenreIds);
+        Set<Integer> addedGenreIds = new LinkedHashSet<>(newGenreIds);
+        addedGenreIds.removeAll(currentGenreIds);
+        genreDao.deleteFilmGenres(film.getId(), removedGenreIds);
+        genreDao.addFilmGenres(film.getId(), addedGenreIds);
+
+        film.setGenres(genres);
+        Film updated = filmDao.updateFilm(film);
+        afterCommit(() -> {
+            popularityIndex.putFilm(film.getId(), newGenreIds, releaseYear(film));
+            filmSearchIndex.putFilm(film);
+        });
+        filmChanged(film.getId());
         log.info("Film {} has been UPDATED", film);
-        return filmDao.updateFilm(film);
+        return updated;
     }
 
     public void addLike(Integer filmId, Integer userId) {
         filmDao.checkFilmExist(filmId);
         userService.getUser(userId); // метод getUser() выбросит исключение, если userId не существует
-        filmLikesDao.like(filmId, userId);
+        popularityIndex.like(filmId, () -> likeWriteBuffer.like(filmId, userId));
+        filmChanged(filmId);
         log.info("Film with ID = {} was LIKED by user with ID = {}", filmId, userId);
     }
 
     public void deleteLike(Integer filmId, Integer userId) {
         filmDao.checkFilmExist(filmId);
         userService.getUser(userId); // метод getUser() выбросит исключение, если userId не существует
-        filmLikesDao.unlike(filmId, userId);
+        popularityIndex.unlike(filmId, () -> likeWriteBuffer.unlike(filmId, userId));
+        filmChanged(filmId);
         log.info("Film with ID = {} was UNLIKED by user with ID = {}", filmId, userId);
     }
 
+    /**
+     * Проверка существования фильма без обращения к БД.
+     */
+    public boolean hasFilm(Integer id) {
+        return popularityIndex.contains(id);
+    }
+
     public Film getFilm(Integer id) {
-        filmDao.checkFilmExist(id);
-        Film film = filmDao.getById(id);
-        film.setGenres(genreDao.getFilmGenres(film.getId()));
+        Film film = filmCache.get(id)
+                .orElseThrow(() -> new NotFoundException(String.format("Film ID = %d does not exist", id)));
         log.info("Get a film with ID = {}", id);
         return film;
     }
 
     public List<Film> getFilms() {
-        List<Film> films = new ArrayList<>();
-        for (Film film : filmDao.getFilms()) {
-            film.setGenres(genreDao.getFilmGenres(film.getId()));
-            films.add(film);
+        return filmDao.getFilms();
+    }
+
+    public void exportFilms(Consumer<Film> consumer) {
+        log.info("Export all films");
+        filmDao.streamFilms(consumer);
+    }
+
+    public List<Film> getFilmsPage(Integer afterId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            throw new ValidationException(String.format("Page limit must be between 1 and %d", MAX_PAGE_LIMIT));
+        }
+        log.info("Get {} films after ID = {}", limit, afterId);
+        return filmDao.getFilmsPage(afterId == null ? 0 : afterId, limit);
+    }
+
+    public List<Film> getTopFilms(Integer count, Integer genreId, Integer releaseYear) {
+        if (genreId != null) {
+            genreDao.getGenre(genreId); // метод getGenre() выбросит исключение, если genreId не существует
+        }
+        log.info("Get {} popular films, genre ID = {}, year = {}", count, genreId, releaseYear);
+        return filmCache.getAll(popularityIndex.getTop(count, genreId, releaseYear));
+    }
+
+    public List<Film> searchFilms(String query, int offset, int limit) {
+        if (offset < 0 || offset > MAX_SEARCH_OFFSET) {
+            throw new ValidationException(String.format("Search offset must be between 0 and %d", MAX_SEARCH_OFFSET));
+        }
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            throw new ValidationException(String.format("Search limit must be between 1 and %d", MAX_PAGE_LIMIT));
+        }
+        log.info("Search {} films after {} by query '{}'", limit, offset, query);
+        int[] filmIds = filmSearchIndex.search(query, offset, limit);
+        return filmCache.getAll(Arrays.stream(filmIds).boxed().collect(Collectors.toList()));
+    }
+
+    public List<Film> getRecommendations(Integer userId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            throw new ValidationException(
+                    String.format("Recommendations limit must be between 1 and %d", MAX_PAGE_LIMIT));
         }
-        return films;
+        userService.getUser(userId); // метод getUser() выбросит исключение, если userId не существует
+        log.info("Get {} recommended films for the user with ID = {}", limit, userId);
+        int[] filmIds = likeMatrix.recommend(userId, limit);
+        return filmCache.getAll(Arrays.stream(filmIds).boxed().collect(Collectors.toList()));
+    }
+
+    /**
+     * Проверяет элемент пакета и подставляет рейтинг и жанры из справочников; возвращает текст ошибки или null.
+     */
+    private String prepareBatchFilm(Film film, Set<String> batchNames) {
+        if (film == null) {
+            return "Film must be completed";
+        }
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        try {
+            film.setMpa(mpaDao.getMpa(film.getMpa().getId()));
+            film.setGenres(resolveGenres(film.getGenres()));
+        } catch (NotFoundException e) {
+            return e.getMessage();
+        }
+        if (!batchNames.add(film.getName())) {
+            return String.format("Film with name '%s' is repeated in the batch", film.getName());
+        }
+        return null;
+    }
+
+    private List<BatchItemResult> createChunk(Map<Integer, Film> chunk) {
+        List<BatchItemResult> results = new ArrayList<>();
+        Set<String> existingNames = filmDao.findIdsByNames(chunk.values().stream()
+                .map(Film::getName)
+                .collect(Collectors.toList())).keySet();
+        Map<Integer, Film> accepted = new LinkedHashMap<>();
+        chunk.forEach((index, film) -> {
+            if (existingNames.contains(film.getName())) {
+                results.add(BatchItemResult.failed(index,
+                        String.format("Film with name '%s' already exists", film.getName())));
+            } else {
+                accepted.put(index, film);
+            }
+        });
+        results.addAll(insertChunk(accepted));
+        return results;
+    }
+
+    /**
+     * Записывает порцию в одной транзакции. Если база отклонила порцию,
+     * её фильмы записываются по одному, и ошибку получает только тот элемент, который её вызвал.
+     */
+    private List<BatchItemResult> insertChunk(Map<Integer, Film> chunk) {
+        if (chunk.isEmpty()) {
+            return List.of();
+        }
+        List<Film> films = new ArrayList<>(chunk.values());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                filmDao.createFilms(films);
+                genreDao.addFilmsGenres(films.stream()
+                        .collect(Collectors.toMap(Film::getId, film -> genreIds(film.getGenres()))));
+            });
+        } catch (DataAccessException e) {
+            if (chunk.size() == 1) {
+                // текст ошибки базы с именами ограничений и SQL остаётся в логе
+                log.warn("Batch film was rejected: {}", e.getMostSpecificCause().getMessage());
+                Map.Entry<Integer, Film> item = chunk.entrySet().iterator().next();
+                Film film = item.getValue();
+                String error = e instanceof DuplicateKeyException
+                        ? String.format("Film with name '%s' already exists", film.getName())
+                        : "Film could not be saved";
+                return List.of(BatchItemResult.failed(item.getKey(), error));
+            }
+            List<BatchItemResult> results = new ArrayList<>();
+            chunk.forEach((index, film) -> results.addAll(insertChunk(Map.of(index, film))));
+            return results;
+        }
+
+        films.forEach(film -> {
+            popularityIndex.putFilm(film.getId(), genreIds(film.getGenres()), releaseYear(film));
+            filmSearchIndex.putFilm(film);
+            filmChanged(film.getId());
+        });
+        return chunk.entrySet().stream()
+                .map(entry -> BatchItemResult.created(entry.getKey(), entry.getValue().getId()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Жанры из запроса без повторов, упорядоченные по id и взятые из справочника.
+     */
+    private Set<Genre> resolveGenres(Set<Genre> requested) {
+        if (requested == null) {
+            return new LinkedHashSet<>();
+        }
+        return requested.stream()
+                .map(Genre::getId)
+                .distinct()
+                .sorted(Comparator.nullsFirst(Comparator.naturalOrder()))
+                .map(genreDao::getGenre)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Сбрасывает фильм в кеше и увеличивает его версию для ETag. Внутри транзакции — после фиксации,
+     * иначе запрос, пришедший до фиксации, снова закешировал бы старые данные уже с новой версией.
+     */
+    private void filmChanged(int filmId) {
+        afterCommit(() -> {
+            filmCache.invalidate(filmId);
+            resourceVersions.filmChanged(filmId);
+        });
+    }
+
+    /**
+     * Выполняет действие после фиксации текущей транзакции или сразу, если транзакции нет.
+     * Так индексы и кеш не видят изменений, которые ещё могут откатиться.
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Set<Integer> genreIds(Set<Genre> genres) {
+        return genres.stream()
+                .map(Genre::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
-    public List<Film> getTopFilms(Integer count) {
-        log.info("Get {} popular films", count);
-        return filmDao.getTopFilms(count);
+    private Integer releaseYear(Film film) {
+        return film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
     }
 }
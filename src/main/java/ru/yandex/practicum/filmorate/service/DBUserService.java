@@ -3,34 +3,102 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.dao.user.FriendDao;
 import ru.yandex.practicum.filmorate.storage.dao.user.UserDao;
+import ru.yandex.practicum.filmorate.storage.index.FriendIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendSuggestions;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class DBUserService {
+    private static final int MAX_PAGE_LIMIT = 1000;
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     private final UserDao userDao;
     private final FriendDao friendDao;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final FriendIndex friendIndex;
+    private final FriendSuggestions friendSuggestions;
 
     @Autowired
-    public DBUserService(@Qualifier("userDaoImpl") UserDao userDao, FriendDao friendDao) {
+    public DBUserService(@Qualifier("userDaoImpl") UserDao userDao, FriendDao friendDao,
+                         Validator validator, TransactionTemplate transactionTemplate, FriendIndex friendIndex,
+                         FriendSuggestions friendSuggestions) {
         this.userDao = userDao;
         this.friendDao = friendDao;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.friendIndex = friendIndex;
+        this.friendSuggestions = friendSuggestions;
     }
 
     public User create(User user) {
-        if (user.getName() == null || user.getName().isBlank()) user.setName(user.getLogin());
+        applyDefaultName(user);
         user = userDao.createUser(user);
         log.info("User {} has been CREATED", user);
         return user;
     }
 
+    /**
+     * Пакетное добавление пользователей. Каждый элемент проверяется отдельно, прошедшие проверку
+     * записываются порциями по BATCH_CHUNK_SIZE, каждая порция — в своей транзакции.
+     */
+    public List<BatchItemResult> createUsers(Iterator<User> users) {
+        List<BatchItemResult> results = new ArrayList<>();
+        Set<String> batchEmails = new HashSet<>();
+        Set<String> batchLogins = new HashSet<>();
+        Map<Integer, User> chunk = new LinkedHashMap<>();
+        int index = 0;
+        while (users.hasNext()) {
+            User user;
+            try {
+                user = users.next();
+            } catch (ValidationException e) {
+                // строку не удалось прочитать: ошибку получает только она, остальные обрабатываются как обычно
+                results.add(BatchItemResult.failed(index++, e.getMessage()));
+                continue;
+            }
+            String error = prepareBatchUser(user, batchEmails, batchLogins);
+            if (error != null) {
+                results.add(BatchItemResult.failed(index, error));
+            } else {
+                chunk.put(index, user);
+            }
+            if (chunk.size() == BATCH_CHUNK_SIZE) {
+                results.addAll(createChunk(chunk));
+                chunk.clear();
+            }
+            index++;
+        }
+        results.addAll(createChunk(chunk));
+        results.sort(Comparator.comparingInt(BatchItemResult::getIndex));
+        log.info("Batch of {} users has been PROCESSED", index);
+        return results;
+    }
+
     public User update(User user) {
         if (user.getId() == null || !userDao.checkUserExist(user.getId())) {
             throw new NotFoundException("Cannot update user with ID = null");
@@ -40,33 +108,53 @@ public class DBUserService {
     }
 
     public void addFriend(Integer userId, Integer friendId) {
-        if (getUserFriends(userId).contains(getUser(friendId))) {
-            throw new AlreadyExistException(String.format(
-                    "User with ID = %d is ALREADY friends with user with ID = %d", friendId, userId));
+        // AlreadyExistException бросает сам friendDao, если дружба уже есть
+        if (!friendIndex.addFriend(userId, friendId, () -> friendDao.addFriend(userId, friendId))) {
+            userDao.checkUserExist(userId);
+            userDao.checkUserExist(friendId);
+            // оба пользователя есть, но строка не записана: один из них удалён параллельно
+            throw new NotFoundException(String.format(
+                    "Friendship of users with ID = %d and ID = %d was NOT ADDED", userId, friendId));
         }
-        friendDao.addFriend(userId, friendId);
+        friendSuggestions.invalidate(userId, friendId);
         log.info("User with ID = {} ADDED user with ID = {} as a friend", userId, friendId);
     }
 
     public void deleteFriend(Integer userId, Integer friendId) {
-        if (!getUserFriends(userId).contains(getUser(friendId))) {
+        if (!friendIndex.removeFriend(userId, friendId, () -> friendDao.deleteFriend(userId, friendId))) {
+            userDao.checkUserExist(userId);
+            userDao.checkUserExist(friendId);
             throw new NotFoundException(
                     String.format("Deleted user with ID = %d was NOT FOUND in friends", friendId));
         }
-        friendDao.deleteFriend(userId, friendId);
+        friendSuggestions.invalidate(userId, friendId);
         log.info("User with ID = {} REMOVED from friends of user with ID = {}", friendId, userId);
     }
 
     public User getUser(Integer id) {
-        userDao.checkUserExist(id);
+        User user = userDao.findById(id)
+                .orElseThrow(() -> new NotFoundException(String.format("User ID = %d does not exist", id)));
         log.info("Get a user with ID = {}", id);
-        return userDao.getById(id);
+        return user;
     }
 
     public List<User> getUsers() {
         return userDao.getUsers();
     }
 
+    public void exportUsers(Consumer<User> consumer) {
+        log.info("Export all users");
+        userDao.streamUsers(consumer);
+    }
+
+    public List<User> getUsersPage(Integer afterId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            throw new ValidationException(String.format("Page limit must be between 1 and %d", MAX_PAGE_LIMIT));
+        }
+        log.info("Get {} users after ID = {}", limit, afterId);
+        return userDao.getUsersPage(afterId == null ? 0 : afterId, limit);
+    }
+
     public List<User> getUserFriends(Integer id) {
         userDao.checkUserExist(id);
         log.info("Get friends of the user with ID= {}", id);
@@ -77,6 +165,110 @@ public class DBUserService {
         userDao.checkUserExist(userId);
         userDao.checkUserExist(friendId);
         log.info("Get common friends of users with ID = {} and ID = {}", userId, friendId);
-        return friendDao.getCommonFriends(userId, friendId);
+        int[] commonIds = friendIndex.getCommonFriends(userId, friendId);
+        return userDao.getUsersByIds(Arrays.stream(commonIds).boxed().collect(Collectors.toList()));
+    }
+
+    public List<User> getFriendSuggestions(Integer id, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            throw new ValidationException(String.format("Suggestions limit must be between 1 and %d", MAX_PAGE_LIMIT));
+        }
+        userDao.checkUserExist(id);
+        log.info("Get {} friend suggestions for the user with ID = {}", limit, id);
+        int[] suggestedIds = friendSuggestions.suggest(id, limit);
+        return userDao.getUsersByIds(Arrays.stream(suggestedIds).boxed().collect(Collectors.toList()));
+    }
+
+    private void applyDefaultName(User user) {
+        if (user.getName() == null || user.getName().isBlank()) user.setName(user.getLogin());
+    }
+
+    /**
+     * Проверяет элемент пакета и подставляет имя по умолчанию; возвращает текст ошибки или null.
+     */
+    private String prepareBatchUser(User user, Set<String> batchEmails, Set<String> batchLogins) {
+        if (user == null) {
+            return "User must be completed";
+        }
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        if (batchEmails.contains(user.getEmail())) {
+            return String.format("User with email '%s' is repeated in the batch", user.getEmail());
+        }
+        if (batchLogins.contains(user.getLogin())) {
+            return String.format("User with login '%s' is repeated in the batch", user.getLogin());
+        }
+        batchEmails.add(user.getEmail());
+        batchLogins.add(user.getLogin());
+        applyDefaultName(user);
+        return null;
+    }
+
+    private List<BatchItemResult> createChunk(Map<Integer, User> chunk) {
+        List<BatchItemResult> results = new ArrayList<>();
+        if (chunk.isEmpty()) {
+            return results;
+        }
+        Set<String> existingEmails = new HashSet<>();
+        Set<String> existingLogins = new HashSet<>();
+        for (User existing : userDao.findByEmailsOrLogins(
+                chunk.values().stream().map(User::getEmail).collect(Collectors.toList()),
+                chunk.values().stream().map(User::getLogin).collect(Collectors.toList()))) {
+            existingEmails.add(existing.getEmail());
+            existingLogins.add(existing.getLogin());
+        }
+
+        Map<Integer, User> accepted = new LinkedHashMap<>();
+        chunk.forEach((index, user) -> {
+            if (existingEmails.contains(user.getEmail())) {
+                results.add(BatchItemResult.failed(index,
+                        String.format("User with email '%s' already exists", user.getEmail())));
+            } else if (existingLogins.contains(user.getLogin())) {
+                results.add(BatchItemResult.failed(index,
+                        String.format("User with login '%s' already exists", user.getLogin())));
+            } else {
+                accepted.put(index, user);
+            }
+        });
+        results.addAll(insertChunk(accepted));
+        return results;
+    }
+
+    /**
+     * Записывает порцию в одной транзакции. Если база отклонила порцию,
+     * её пользователи записываются по одному, и ошибку получает только тот элемент, который её вызвал.
+     */
+    private List<BatchItemResult> insertChunk(Map<Integer, User> chunk) {
+        if (chunk.isEmpty()) {
+            return List.of();
+        }
+        List<User> users = new ArrayList<>(chunk.values());
+        try {
+            transactionTemplate.executeWithoutResult(status -> userDao.createUsers(users));
+        } catch (DataAccessException e) {
+            if (chunk.size() == 1) {
+                // текст ошибки базы с именами ограничений и SQL остаётся в логе
+                log.warn("Batch user was rejected: {}", e.getMostSpecificCause().getMessage());
+                Map.Entry<Integer, User> item = chunk.entrySet().iterator().next();
+                User user = item.getValue();
+                String error = e instanceof DuplicateKeyException
+                        ? String.format("User with email '%s' or login '%s' already exists",
+                        user.getEmail(), user.getLogin())
+                        : "User could not be saved";
+                return List.of(BatchItemResult.failed(item.getKey(), error));
+            }
+            List<BatchItemResult> results = new ArrayList<>();
+            chunk.forEach((index, user) -> results.addAll(insertChunk(Map.of(index, user))));
+            return results;
+        }
+
+        return chunk.entrySet().stream()
+                .map(entry -> BatchItemResult.created(entry.getKey(), entry.getValue().getId()))
+                .collect(Collectors.toList());
     }
 }
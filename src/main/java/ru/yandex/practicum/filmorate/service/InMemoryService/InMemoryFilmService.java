@@ -40,33 +40,30 @@ public class InMemoryFilmService {
     public void addLike(Integer filmId, Integer userId) {
         Film film = getFilm(filmId);
         userService.getUser(userId); // метод getUser() выбросит исключение, если userId не существует
-        if (film.getLikes().contains(userId)) {
+        if (!film.getLikes().addId(userId)) {
             throw new AlreadyExistException(
                     String.format("The user with ID = %d has ALREADY LIKE the film with ID = %d", userId, filmId));
         }
-
-        film.getLikes().add(userId);
         log.info("Film with ID = {} was LIKED by user with ID = {}", filmId, userId);
     }
 
     public void deleteLike(Integer filmId, Integer userId) {
         Film film = getFilm(filmId);
         userService.getUser(userId); // метод getUser() выбросит исключение, если userId не существует
-        if (!film.getLikes().contains(userId)) {
+        if (!film.getLikes().removeId(userId)) {
             throw new NotFoundException(
                     String.format("User with ID = %d has ALREADY DELETED LIKE film with ID = %d", userId, filmId));
         }
-
-        film.getLikes().remove(userId);
         log.info("Film with ID = {} was UNLIKED by user with ID = {}", filmId, userId);
     }
 
     public Film getFilm(Integer id) {
-        if (filmStorage.getById(id) == null) {
+        Film film = filmStorage.getById(id);
+        if (film == null) {
             throw new NotFoundException(String.format("Film ID = %d does not exist", id));
         }
         log.info("Get a film with ID = {}", id);
-        return filmStorage.getById(id);
+        return film;
     }
 
     public List<Film> getFilms() {
@@ -7,17 +7,29 @@ import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraph;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class InMemoryUserService {
+    private static final int FRIEND_LOCK_STRIPES = 64;
+
     private final UserStorage userStorage;
+    // Дружба меняется в двух множествах сразу; операции над одной парой пользователей
+    // выполняются под одной и той же блокировкой, чтобы пара не оказалась связанной наполовину
+    private final Object[] friendLocks = new Object[FRIEND_LOCK_STRIPES];
+    // Индекс для поиска общих друзей, меняется под теми же блокировками, что и множества друзей
+    private final FriendGraph friendGraph = new FriendGraph();
 
     public InMemoryUserService(@Qualifier("inMemoryUserStorage") UserStorage userStorage) {
         this.userStorage = userStorage;
+        for (int i = 0; i < FRIEND_LOCK_STRIPES; i++) {
+            friendLocks[i] = new Object();
+        }
     }
 
     public User create(User user) {
@@ -36,37 +48,41 @@ public class InMemoryUserService {
 
     public void addFriend(Integer userId, Integer friendId) {
         User user = getUser(userId);
-        if (user.getFriends().contains(friendId)) {
-            throw new AlreadyExistException(String.format(
-                    "User with ID = %d is ALREADY friends with user with ID = %d", friendId, userId));
-        }
-
         User friend = getUser(friendId);
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
+        synchronized (friendLock(userId, friendId)) {
+            if (!user.getFriends().addId(friendId)) {
+                throw new AlreadyExistException(String.format(
+                        "User with ID = %d is ALREADY friends with user with ID = %d", friendId, userId));
+            }
+            friend.getFriends().addId(userId);
+            friendGraph.addFriend(userId, friendId);
+            friendGraph.addFriend(friendId, userId);
+        }
         log.info("User with ID = {} ADDED user with ID = {} as a friend", userId, friendId);
     }
 
     public void deleteFriend(Integer userId, Integer friendId) {
         User user = getUser(userId);
         User friend = getUser(friendId);
-
-        if (!user.getFriends().contains(friendId)) {
-            throw new NotFoundException(
-                    String.format("Deleted user with ID = %d was NOT FOUND in friends", friendId));
+        synchronized (friendLock(userId, friendId)) {
+            if (!user.getFriends().removeId(friendId)) {
+                throw new NotFoundException(
+                        String.format("Deleted user with ID = %d was NOT FOUND in friends", friendId));
+            }
+            friend.getFriends().removeId(userId);
+            friendGraph.removeFriend(userId, friendId);
+            friendGraph.removeFriend(friendId, userId);
         }
-
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(userId);
         log.info("User with ID = {} REMOVED from friends of user with ID = {}", friendId, userId);
     }
 
     public User getUser(Integer id) {
-        if (userStorage.getById(id) == null) {
+        User user = userStorage.getById(id);
+        if (user == null) {
             throw new NotFoundException(String.format("User ID = %d does not exist", id));
         }
         log.info("Get a user with ID = {}", id);
-        return userStorage.getById(id);
+        return user;
     }
 
     public List<User> getUsers() {
@@ -74,20 +90,26 @@ public class InMemoryUserService {
     }
 
     public List<User> getUserFriends(Integer id) {
-        if (userStorage.getById(id) == null) {
-            throw new NotFoundException(String.format("User ID = %d does not exist", id));
-        }
+        User user = getUser(id);
         log.info("Get friends of the user with ID= {}", id);
-        return getUser(id).getFriends()
+        return user.getFriends()
                 .stream()
                 .map(this::getUser)
                 .collect(Collectors.toList());
     }
 
     public List<User> getCommonFriends(Integer userId, Integer friendId) {
-        List<User> friends = getUserFriends(userId);
-        friends.retainAll(getUserFriends(friendId));
+        getUser(userId);
+        getUser(friendId);
+        int[] commonIds = friendGraph.getCommonFriends(userId, friendId);
         log.info("Get common friends of users with ID = {} and ID = {}", userId, friendId);
-        return friends;
+        return Arrays.stream(commonIds)
+                .mapToObj(this::getUser)
+                .collect(Collectors.toList());
+    }
+
+    private Object friendLock(int userId, int friendId) {
+        int pairHash = Math.min(userId, friendId) * 31 + Math.max(userId, friendId);
+        return friendLocks[Math.floorMod(pairHash, FRIEND_LOCK_STRIPES)];
     }
 }
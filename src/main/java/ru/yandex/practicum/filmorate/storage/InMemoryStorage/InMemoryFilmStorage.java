@@ -5,16 +5,18 @@ import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Component("inMemoryFilmStorage")
 public class InMemoryFilmStorage implements FilmStorage {
-    private final HashMap<Integer, Film> films = new HashMap<>();
-    private Integer filmId = 1;
+    private final Map<Integer, Film> films = new ConcurrentHashMap<>();
+    private final AtomicInteger filmId = new AtomicInteger(1);
 
     @Override
     public Film createFilm(Film film) {
-        film.setId(filmId++);
+        film.setId(filmId.getAndIncrement());
         films.put(film.getId(), film);
         return film;
     }
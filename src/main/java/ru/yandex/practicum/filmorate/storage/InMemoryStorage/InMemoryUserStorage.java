@@ -5,18 +5,19 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component("inMemoryUserStorage")
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
-    private Integer userId = 1;
+    private final Map<Integer, User> users = new ConcurrentHashMap<>();
+    private final AtomicInteger userId = new AtomicInteger(1);
 
     @Override
     public User createUser(User user) {
-        user.setId(userId++);
+        user.setId(userId.getAndIncrement());
         users.put(user.getId(), user);
         return user;
     }
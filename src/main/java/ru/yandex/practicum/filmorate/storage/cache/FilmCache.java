@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Кеш собранных фильмов (с рейтингом и жанрами) перед FilmDao. Размер ограничен приблизительным
+ * объёмом в байтах, вытеснение — W-TinyLFU. Фильм удаляется из кеша явно после каждого изменения,
+ * а весь кеш сбрасывается при смене версии справочников, потому что фильм хранит их названия.
+ * Наружу отдаются копии, поэтому изменение полученного фильма не портит кеш. Экземпляры Mpa и Genre
+ * в копиях общие со справочниками, как и в остальном приложении.
+ */
+@Component
+public class FilmCache {
+    // приблизительный размер фильма без строк и жанров, заголовков объектов и ссылок
+    private static final int FILM_BYTES = 160;
+    private static final int GENRE_BYTES = 40;
+
+    private final FilmDao filmDao;
+    private final ResourceVersions resourceVersions;
+    private final Cache<Integer, Film> films;
+    // растёт при каждом удалении из кеша, по нему пакетная загрузка узнаёт о параллельных изменениях
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile long referenceVersion;
+
+    public FilmCache(@Qualifier("filmDaoImpl") FilmDao filmDao, ResourceVersions resourceVersions,
+                     @Value("${filmorate.film-cache.max-size}") DataSize maxSize, MeterRegistry meterRegistry) {
+        this.filmDao = filmDao;
+        this.resourceVersions = resourceVersions;
+        this.films = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher(FilmCache::weigh)
+                .recordStats()
+                .build();
+        this.referenceVersion = resourceVersions.getReferenceVersion();
+        CaffeineCacheMetrics.monitor(meterRegistry, films, "films");
+        Gauge.builder("filmorate.film.cache.weight", films,
+                        cache -> cache.policy().eviction()
+                                .map(eviction -> eviction.weightedSize().orElse(0L))
+                                .orElse(0L))
+                .description("Approximate memory used by cached films")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public Optional<Film> get(int filmId) {
+        checkReferenceVersion();
+        // загрузка атомарна для ключа: invalidate() того же фильма дождётся её окончания
+        Film film = films.get(filmId, id -> filmDao.findById(id).orElse(null));
+        return Optional.ofNullable(film).map(FilmCache::copy);
+    }
+
+    /**
+     * Фильмы в порядке ids; отсутствующие в кеше загружаются одним обращением к FilmDao.
+     * Несуществующие id пропускаются.
+     */
+    public List<Film> getAll(List<Integer> ids) {
+        checkReferenceVersion();
+        Map<Integer, Film> cached = films.getAllPresent(ids);
+        if (cached.size() < ids.size()) {
+            List<Integer> missing = new ArrayList<>();
+            for (Integer id : ids) {
+                if (!cached.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            long before = invalidations.get();
+            List<Film> loaded = filmDao.getFilmsByIds(missing);
+            cached = new HashMap<>(cached);
+            for (Film film : loaded) {
+                cached.put(film.getId(), film);
+            }
+            loaded.forEach(film -> films.put(film.getId(), film));
+            if (invalidations.get() != before) {
+                // фильм мог измениться, пока шло чтение: прочитанное не должно остаться в кеше
+                loaded.forEach(film -> films.invalidate(film.getId()));
+            }
+        }
+        List<Film> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Film film = cached.get(id);
+            if (film != null) {
+                result.add(copy(film));
+            }
+        }
+        return result;
+    }
+
+    public void invalidate(int filmId) {
+        invalidations.incrementAndGet();
+        films.invalidate(filmId);
+    }
+
+    private void checkReferenceVersion() {
+        long current = resourceVersions.getReferenceVersion();
+        if (current != referenceVersion) {
+            invalidations.incrementAndGet();
+            films.invalidateAll();
+            referenceVersion = current;
+        }
+    }
+
+    /**
+     * Глубокая копия: рейтинг и жанры тоже изменяемые, поэтому копируются и они.
+     */
+    private static Film copy(Film film) {
+        return film.toBuilder()
+                .mpa(film.getMpa() == null ? null : new Mpa(film.getMpa().getId(), film.getMpa().getName()))
+                .genres(film.getGenres() == null ? null : film.getGenres().stream()
+                        .map(genre -> new Genre(genre.getId(), genre.getName()))
+                        .collect(Collectors.toCollection(LinkedHashSet::new)))
+                .likes(film.getLikes() == null ? null : new IdSet(film.getLikes()))
+                .build();
+    }
+
+    private static int weigh(Integer filmId, Film film) {
+        int genres = film.getGenres() == null ? 0 : film.getGenres().size();
+        return FILM_BYTES + 2 * (length(film.getName()) + length(film.getDescription())) + GENRE_BYTES * genres;
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+}
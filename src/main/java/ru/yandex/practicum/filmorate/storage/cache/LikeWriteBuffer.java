@@ -0,0 +1,312 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Запись лайков в film_likes и в матрицу лайков. В режиме отложенной записи
+ * (filmorate.likes.write-behind.enabled) лайки копятся в памяти по паре (фильм, пользователь):
+ * лайк и снятие того же лайка до записи взаимно уничтожаются, а накопленное записывается пакетом
+ * в одной транзакции по таймеру, при заполнении буфера и при остановке приложения.
+ * Текущее состояние пары — запись в буфере, а если её нет, матрица лайков; матрица и рейтинг
+ * популярности обновляются сразу, поэтому пользователь видит свой лайк до записи в БД.
+ * Пакет, который не удалось записать max-retries раз подряд, отбрасывается с записью в лог;
+ * расхождение затем исправляют плановые перестроения матрицы (rebuildLikeMatrix) и рейтинга популярности.
+ */
+@Component
+@Slf4j
+public class LikeWriteBuffer {
+    private final FilmLikesDao filmLikesDao;
+    private final LikeMatrix likeMatrix;
+    private final boolean enabled;
+    private final int flushSize;
+    private final int maxPending;
+    private final int maxRetries;
+    private final Counter cancelled;
+    private final Counter dropped;
+    // операции с парами идут под разделяемой блокировкой, подмена буфера перед записью — под исключающей
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "like-buffer-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // пара (фильм, пользователь) → true: лайк ещё не записан, false: снятие лайка ещё не записано
+    private volatile Map<Long, Boolean> pending = new ConcurrentHashMap<>();
+    // пакет, который не удалось записать; при следующей записи к нему добавляются новые операции
+    private volatile Map<Long, Boolean> failed = Map.of();
+    private int failedAttempts;
+    // после остановки лайки пишутся в БД сразу
+    private volatile boolean closed;
+
+    public LikeWriteBuffer(FilmLikesDao filmLikesDao, LikeMatrix likeMatrix,
+                           @Value("${filmorate.likes.write-behind.enabled}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.flush-size}") int flushSize,
+                           @Value("${filmorate.likes.write-behind.max-pending}") int maxPending,
+                           @Value("${filmorate.likes.write-behind.max-retries}") int maxRetries,
+                           MeterRegistry meterRegistry) {
+        this.filmLikesDao = filmLikesDao;
+        this.likeMatrix = likeMatrix;
+        this.enabled = enabled;
+        this.flushSize = flushSize;
+        this.maxPending = maxPending;
+        this.maxRetries = maxRetries;
+        this.cancelled = Counter.builder("filmorate.likes.buffer.cancelled")
+                .description("Buffered likes cancelled by an opposite operation before reaching the database")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("filmorate.likes.buffer.dropped")
+                .description("Buffered like operations dropped after repeated write failures")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.likes.buffer.pending", this, buffer -> buffer.size())
+                .description("Like and unlike operations waiting to be written")
+                .register(meterRegistry);
+    }
+
+    public void like(int filmId, int userId) {
+        if (enabled && update(filmId, userId, buffered -> {
+            boolean liked = buffered != null ? buffered : likeMatrix.isLiked(userId, filmId);
+            if (liked) {
+                throw new AlreadyExistException(String.format(
+                        "User with ID = %d has ALREADY liked film with ID = %d", userId, filmId));
+            }
+            likeMatrix.like(userId, filmId);
+            return buffered == null ? Boolean.TRUE : cancel();
+        })) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            filmLikesDao.like(filmId, userId);
+            likeMatrix.like(userId, filmId);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return false, если лайка не было
+     */
+    public boolean unlike(int filmId, int userId) {
+        boolean[] removed = new boolean[1];
+        if (enabled && update(filmId, userId, buffered -> {
+            boolean liked = buffered != null ? buffered : likeMatrix.isLiked(userId, filmId);
+            if (!liked) {
+                return buffered;
+            }
+            likeMatrix.unlike(userId, filmId);
+            removed[0] = true;
+            return buffered == null ? Boolean.FALSE : cancel();
+        })) {
+            return removed[0];
+        }
+        swapLock.readLock().lock();
+        try {
+            removed[0] = filmLikesDao.unlike(filmId, userId);
+            likeMatrix.unlike(userId, filmId);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        return removed[0];
+    }
+
+    /**
+     * Число лайков по фильмам из БД с учётом ещё не записанных операций. В режиме отложенной записи
+     * буфер на время подсчёта не записывается и не меняется, поэтому операции не теряются и не учитываются
+     * дважды. При записи сразу буфера нет и лайки не останавливаются: согласованность с лайками, если она
+     * нужна, обеспечивает вызывающий.
+     */
+    public Map<Integer, Integer> getLikeCounts() {
+        if (!enabled) {
+            return filmLikesDao.getLikeCounts();
+        }
+        synchronized (flushLock) {
+            swapLock.writeLock().lock();
+            try {
+                return withBuffered(filmLikesDao.getLikeCounts());
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * То же без остановки лайков: операции, записанные во время подсчёта, могут не учесться или учесться
+     * дважды. Годится для быстрой проверки, расхождение по которой нужно подтвердить через getLikeCounts.
+     */
+    public Map<Integer, Integer> estimateLikeCounts() {
+        Map<Integer, Integer> counts = filmLikesDao.getLikeCounts();
+        return enabled ? withBuffered(counts) : counts;
+    }
+
+    /**
+     * Пересобирает матрицу лайков из film_likes и накладывает ещё не записанные операции, исправляя
+     * расхождения, например после отброшенного пакета. Лайки на это время останавливаются, поэтому
+     * ни одна операция не теряется между чтением таблицы и заменой матрицы.
+     */
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.rebuild-interval}",
+            initialDelayString = "${filmorate.recommendations.rebuild-interval}")
+    public void rebuildLikeMatrix() {
+        synchronized (flushLock) {
+            swapLock.writeLock().lock();
+            try {
+                likeMatrix.rebuild();
+                for (Map<Long, Boolean> operations : List.of(failed, pending)) {
+                    operations.forEach((pair, like) -> {
+                        if (like) {
+                            likeMatrix.like(userId(pair), filmId(pair));
+                        } else {
+                            likeMatrix.unlike(userId(pair), filmId(pair));
+                        }
+                    });
+                }
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval}",
+            initialDelayString = "${filmorate.likes.write-behind.flush-interval}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            Map<Long, Boolean> batch;
+            swapLock.writeLock().lock();
+            try {
+                batch = pending;
+                pending = new ConcurrentHashMap<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            if (!failed.isEmpty()) {
+                // пара из нового пакета в незаписанном может быть только с обратной операцией: они сокращаются
+                Map<Long, Boolean> merged = new HashMap<>(failed);
+                batch.forEach((pair, like) -> merged.merge(pair, like, (older, newer) -> null));
+                batch = merged;
+            }
+            if (batch.isEmpty() || write(batch)) {
+                failed = Map.of();
+                failedAttempts = 0;
+            } else if (++failedAttempts < maxRetries) {
+                failed = batch;
+            } else {
+                log.error("{} buffered like operations were DROPPED after {} failed writes",
+                        batch.size(), failedAttempts);
+                dropped.increment(batch.size());
+                failed = Map.of();
+                failedAttempts = 0;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        swapLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        flushExecutor.shutdown();
+        flush();
+        if (!failed.isEmpty()) {
+            log.error("{} buffered like operations were NOT written to the database on shutdown", failed.size());
+        }
+    }
+
+    /**
+     * @return false, если буфер уже остановлен и операцию нужно записать в БД сразу
+     */
+    private boolean update(int filmId, int userId, UnaryOperator<Boolean> operation) {
+        if (size() >= maxPending) {
+            flush();
+            if (size() >= maxPending) {
+                throw new DataAccessResourceFailureException(String.format(
+                        "Like buffer is full: %d operations are waiting to be written", size()));
+            }
+        }
+        swapLock.readLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            pending.compute(pair(filmId, userId), (pair, buffered) -> operation.apply(buffered));
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        if (pending.size() >= flushSize && !flushExecutor.isShutdown() && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(this::flush);
+        }
+        return true;
+    }
+
+    private Map<Integer, Integer> withBuffered(Map<Integer, Integer> counts) {
+        for (Map<Long, Boolean> operations : List.of(failed, pending)) {
+            operations.forEach((pair, like) -> counts.merge(filmId(pair), like ? 1 : -1, Integer::sum));
+        }
+        return counts;
+    }
+
+    private int size() {
+        return failed.size() + pending.size();
+    }
+
+    private Boolean cancel() {
+        cancelled.increment();
+        return null;
+    }
+
+    private boolean write(Map<Long, Boolean> batch) {
+        List<int[]> likes = new ArrayList<>();
+        List<int[]> unlikes = new ArrayList<>();
+        batch.forEach((pair, like) -> (like ? likes : unlikes).add(new int[]{filmId(pair), userId(pair)}));
+        try {
+            int changed = filmLikesDao.writeLikes(likes, unlikes);
+            log.debug("Flushed {} likes and {} unlikes, {} rows changed", likes.size(), unlikes.size(), changed);
+            return true;
+        } catch (DataAccessException e) {
+            log.error("Failed to flush {} buffered like operations, will retry", batch.size(), e);
+            return false;
+        }
+    }
+
+    private static long pair(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private static int filmId(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    private static int userId(long pair) {
+        return (int) pair;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Справочник (рейтинги MPA, жанры), целиком загруженный в память и проиндексированный по id.
+ * Снимок данных неизменяем и подменяется целиком при перезагрузке, поэтому чтение идёт без блокировок,
+ * а все потребители получают одни и те же экземпляры объектов.
+ */
+@Slf4j
+public class ReferenceCache<T> {
+    // промахи перезагружают справочник не чаще этого интервала
+    private static final long MISS_RELOAD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final String name;
+    private final Supplier<List<T>> loader;
+    private final Function<T, Integer> idExtractor;
+    private final Counter hits;
+    private final Counter misses;
+    private volatile Map<Integer, T> byId;
+    private volatile List<T> values;
+    private volatile long version;
+    private volatile long lastMissReload = System.nanoTime() - MISS_RELOAD_INTERVAL_NANOS;
+
+    public ReferenceCache(String name, Supplier<List<T>> loader, Function<T, Integer> idExtractor,
+                          MeterRegistry meterRegistry) {
+        this.name = name;
+        this.loader = loader;
+        this.idExtractor = idExtractor;
+        this.hits = Counter.builder("filmorate.reference.cache.requests")
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("filmorate.reference.cache.requests")
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public Optional<T> get(Integer id) {
+        if (values == null) {
+            reload();
+        }
+        T value = byId.get(id);
+        if (value != null) {
+            hits.increment();
+            return Optional.of(value);
+        }
+
+        misses.increment();
+        if (id == null || !reloadAfterMiss()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public List<T> getAll() {
+        if (values == null) {
+            reload();
+        }
+        hits.increment();
+        return values;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public synchronized void reload() {
+        List<T> loaded = List.copyOf(loader.get());
+        if (loaded.equals(values)) {
+            return;
+        }
+
+        Map<Integer, T> index = new HashMap<>();
+        for (T value : loaded) {
+            index.put(idExtractor.apply(value), value);
+        }
+        byId = Collections.unmodifiableMap(index);
+        values = loaded;
+        version++;
+        log.info("Reference cache '{}' loaded {} entries (version {})", name, loaded.size(), version);
+    }
+
+    /**
+     * Запись могла появиться в БД после последней загрузки. Перезагрузка по промаху ограничена по частоте,
+     * иначе каждый запрос несуществующего id читал бы всю таблицу под общей блокировкой.
+     *
+     * @return true, если справочник перезагружен
+     */
+    private boolean reloadAfterMiss() {
+        long now = System.nanoTime();
+        if (now - lastMissReload < MISS_RELOAD_INTERVAL_NANOS) {
+            return false;
+        }
+        synchronized (this) {
+            if (now - lastMissReload < MISS_RELOAD_INTERVAL_NANOS) {
+                return false; // другой поток перезагрузил справочник, пока этот ждал блокировку
+            }
+            reload();
+            lastMissReload = System.nanoTime();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.MpaDao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Версии ресурсов для ETag. Версия фильма растёт при каждом его изменении, версия справочников
+ * берётся из кешей жанров и рейтингов MPA. Версии хранятся только в памяти, поэтому в ETag входит
+ * метка запуска приложения: после перезапуска все выданные ранее ETag перестают совпадать.
+ */
+@Component
+public class ResourceVersions {
+    private final GenreDao genreDao;
+    private final MpaDao mpaDao;
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    // в карте только фильмы, изменённые после запуска, у остальных версия 0
+    private final Map<Integer, Long> filmVersions = new ConcurrentHashMap<>();
+
+    public ResourceVersions(GenreDao genreDao, MpaDao mpaDao) {
+        this.genreDao = genreDao;
+        this.mpaDao = mpaDao;
+    }
+
+    /**
+     * ETag фильма; учитывает и справочники, потому что фильм отдаётся с названиями жанров и рейтинга.
+     */
+    public String filmTag(int filmId) {
+        return String.format("\"%s-%d-%d\"", epoch, getReferenceVersion(), filmVersions.getOrDefault(filmId, 0L));
+    }
+
+    public String referenceTag() {
+        return String.format("\"%s-%d\"", epoch, getReferenceVersion());
+    }
+
+    public void filmChanged(int filmId) {
+        filmVersions.merge(filmId, 1L, Long::sum);
+    }
+
+    public long getReferenceVersion() {
+        // обе версии только растут, поэтому сумма меняется при изменении любого справочника
+        return genreDao.getVersion() + mpaDao.getVersion();
+    }
+}
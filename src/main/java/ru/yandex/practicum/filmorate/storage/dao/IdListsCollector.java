@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage.dao;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Собирает строки пар id, упорядоченные по первому столбцу, в массивы без упаковки id:
+ * для каждого значения первого столбца — массив значений второго в порядке строк.
+ */
+public class IdListsCollector implements RowCallbackHandler {
+    private final String keyColumn;
+    private final String valueColumn;
+    private final Map<Integer, int[]> idsByKey = new HashMap<>();
+    private int key;
+    private int[] ids = new int[16];
+    private int count;
+
+    public IdListsCollector(String keyColumn, String valueColumn) {
+        this.keyColumn = keyColumn;
+        this.valueColumn = valueColumn;
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        int rowKey = rs.getInt(keyColumn);
+        if (count > 0 && rowKey != key) {
+            flush();
+        }
+        key = rowKey;
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+        }
+        ids[count++] = rs.getInt(valueColumn);
+    }
+
+    public Map<Integer, int[]> finish() {
+        if (count > 0) {
+            flush();
+        }
+        return idsByKey;
+    }
+
+    private void flush() {
+        idsByKey.put(key, Arrays.copyOf(ids, count));
+        count = 0;
+    }
+}
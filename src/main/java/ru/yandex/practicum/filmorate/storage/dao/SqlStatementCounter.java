@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.storage.dao;
+
+import lombok.Getter;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Оборачивает DataSource и считает SQL-запросы текущего потока, пока для него открыт подсчёт:
+ * число выполнений, суммарное время выполнения и число выполнений каждого текста запроса.
+ * Один и тот же текст с разными параметрами много раз за запрос — обычно признак N+1.
+ * Слушатели получают каждый выполненный запрос из любого потока вместе со значениями параметров;
+ * параметры запоминаются, только пока есть хотя бы один слушатель.
+ */
+@Component
+public class SqlStatementCounter implements BeanPostProcessor {
+    private final ThreadLocal<Statistics> current = new ThreadLocal<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource)) {
+            return bean;
+        }
+        return wrap(bean, null);
+    }
+
+    /**
+     * Открывает подсчёт для текущего потока.
+     */
+    public Statistics start() {
+        Statistics statistics = new Statistics();
+        current.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * Статистика текущего потока или null, если подсчёт не открыт.
+     */
+    public Statistics current() {
+        return current.get();
+    }
+
+    public void stop() {
+        current.remove();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    private Object wrap(Object target, String sql) {
+        Class<?>[] interfaces = Arrays.stream(ClassUtils.getAllInterfaces(target))
+                .filter(type -> Modifier.isPublic(type.getModifiers()))
+                .toArray(Class<?>[]::new);
+        Map<Integer, Object> parameters = target instanceof PreparedStatement ? new TreeMap<>() : null;
+        return Proxy.newProxyInstance(getClass().getClassLoader(), interfaces, (proxy, method, args) -> {
+            Statistics statistics = current.get();
+            boolean execute = target instanceof Statement && method.getName().startsWith("execute");
+            if (!execute || statistics == null && listeners.isEmpty()) {
+                Object result = invoke(target, method, args);
+                if (parameters != null && !listeners.isEmpty()) {
+                    recordParameter(parameters, method, args);
+                }
+                return wrapResult(result, method, args);
+            }
+            String executed = sql != null || args == null ? String.valueOf(sql) : String.valueOf(args[0]);
+            long start = System.nanoTime();
+            try {
+                Object result = invoke(target, method, args);
+                List<Object> values = parameters != null ? new ArrayList<>(parameters.values()) : List.of();
+                listeners.forEach(listener -> listener.executed(executed, values));
+                return result;
+            } finally {
+                if (statistics != null) {
+                    statistics.record(executed, System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    private static void recordParameter(Map<Integer, Object> parameters, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("clearParameters")) {
+            parameters.clear();
+        } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+            parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+        }
+    }
+
+    private Object wrapResult(Object result, Method method, Object[] args) {
+        if (result instanceof Connection) {
+            return wrap(result, null);
+        }
+        if (result instanceof Statement) {
+            return wrap(result, method.getName().startsWith("prepare") ? (String) args[0] : null);
+        }
+        return result;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Получает SQL и значения параметров каждого успешно выполненного запроса.
+     */
+    public interface Listener {
+        void executed(String sql, List<Object> parameters);
+    }
+
+    /**
+     * SQL-запросы одного потока. Изменяется только этим потоком.
+     */
+    @Getter
+    public static class Statistics {
+        private int statements;
+        private long nanos;
+        private final Map<String, Integer> executionsBySql = new HashMap<>();
+
+        public long getMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        private void record(String sql, long elapsed) {
+            statements++;
+            nanos += elapsed;
+            executionsBySql.merge(sql, 1, Integer::sum);
+        }
+    }
+}
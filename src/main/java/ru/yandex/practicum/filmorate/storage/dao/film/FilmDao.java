@@ -1,7 +1,31 @@
 package ru.yandex.practicum.filmorate.storage.dao.film;
 
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
 public interface FilmDao extends FilmStorage {
     boolean checkFilmExist(Integer id);
+
+    Optional<Film> findById(Integer id);
+
+    List<Film> createFilms(List<Film> films);
+
+    Map<String, Integer> findIdsByNames(Collection<String> names);
+
+    List<Film> getFilmsByIds(List<Integer> ids);
+
+    Optional<Set<Integer>> findFilmGenreIds(Integer id);
+
+    List<Film> getFilmsPage(int afterId, int limit);
+
+    Map<Integer, Integer> getReleaseYears();
+
+    void streamFilms(Consumer<Film> consumer);
 }
@@ -1,7 +1,24 @@
 package ru.yandex.practicum.filmorate.storage.dao.film;
 
+import java.util.List;
+import java.util.Map;
+
 public interface FilmLikesDao {
     void like(Integer id, Integer userId);
 
-    void unlike(Integer id, Integer userId);
+    boolean unlike(Integer id, Integer userId);
+
+    /**
+     * Записывает пакет лайков и снятий лайков, пары {id фильма, id пользователя}.
+     * Лайк к несуществующему фильму или от несуществующего пользователя и повторный лайк пропускаются.
+     *
+     * @return число изменённых строк film_likes
+     */
+    int writeLikes(List<int[]> likes, List<int[]> unlikes);
+
+    Map<Integer, Integer> getLikeCounts();
+
+    Map<Integer, int[]> getLikedFilmIdsByUser();
+
+    int repairLikeCounts();
 }
@@ -2,18 +2,37 @@ package ru.yandex.practicum.filmorate.storage.dao.film;
 
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface GenreDao {
 
     void addGenreInFilm(Integer filmId, Integer genreId);
 
+    void addFilmGenres(Integer filmId, Collection<Integer> genreIds);
+
+    void addFilmsGenres(Map<Integer, ? extends Collection<Integer>> filmsGenreIds);
+
+    void deleteFilmGenres(Integer filmId, Collection<Integer> genreIds);
+
     Set<Genre> getFilmGenres(Integer filmId);
 
+    Map<Integer, Set<Genre>> getFilmsGenres(Collection<Integer> filmIds);
+
+    Map<Integer, int[]> getGenreIdsByFilm();
+
     Genre getGenre(Integer id);
 
     List<Genre> getAllGenres();
 
     void deleteFilmGenre(Integer filmId);
+
+    void refresh();
+
+    /**
+     * Версия загруженного справочника, растёт при каждом изменении данных.
+     */
+    long getVersion();
 }
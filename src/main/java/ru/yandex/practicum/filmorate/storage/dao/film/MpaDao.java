@@ -8,4 +8,11 @@ public interface MpaDao {
     Mpa getMpa(Integer id);
 
     List<Mpa> getAllMpa();
+
+    void refresh();
+
+    /**
+     * Версия загруженного справочника, растёт при каждом изменении данных.
+     */
+    long getVersion();
 }
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.storage.dao.film.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
@@ -9,21 +10,37 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.MpaDao;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component("filmDaoImpl")
 @RequiredArgsConstructor
 public class FilmDaoImpl implements FilmDao {
+    private static final String FILM_SELECT = "SELECT f.* FROM films AS f ";
+    private static final int IN_LIST_CHUNK_SIZE = 500;
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final GenreDao genreDao;
+    private final MpaDao mpaDao;
 
     @Override
     public Film createFilm(Film film) {
@@ -42,12 +59,50 @@ public class FilmDaoImpl implements FilmDao {
         }, id);
 
         film.setId(Objects.requireNonNull(id.getKey()).intValue());
-        String mpaName = "SELECT mpa_id, name FROM mpa WHERE mpa_id = ?";
-        Mpa mpa = jdbcTemplate.queryForObject(mpaName, this::mapRowToMpa, mpaId);
-        film.setMpa(mpa);
+        film.setMpa(mpaDao.getMpa(mpaId));
         return film;
     }
 
+    /**
+     * Добавляет фильмы одним пакетом; id затем читаются по названиям, которые уникальны.
+     */
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        String sqlQuery = "INSERT INTO films (name, description, duration, releaseDate, mpa_id) VALUES (?,?,?,?,?)";
+        jdbcTemplate.batchUpdate(sqlQuery, films, films.size(), (ps, film) -> {
+            ps.setString(1, film.getName());
+            ps.setString(2, film.getDescription());
+            ps.setInt(3, film.getDuration());
+            ps.setObject(4, film.getReleaseDate());
+            ps.setInt(5, film.getMpa().getId());
+        });
+
+        Map<String, Integer> ids = findIdsByNames(films.stream().map(Film::getName).collect(Collectors.toList()));
+        for (Film film : films) {
+            film.setId(ids.get(film.getName()));
+            film.setMpa(mpaDao.getMpa(film.getMpa().getId()));
+        }
+        return films;
+    }
+
+    @Override
+    public Map<String, Integer> findIdsByNames(Collection<String> names) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> distinctNames = List.copyOf(new HashSet<>(names));
+        for (int from = 0; from < distinctNames.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<String> chunk = distinctNames.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, distinctNames.size()));
+            String inSql = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            String sqlQuery = "SELECT id, name FROM films WHERE name IN (" + inSql + ")";
+            jdbcTemplate.query(sqlQuery, rs -> {
+                ids.put(rs.getString("name"), rs.getInt("id"));
+            }, chunk.toArray());
+        }
+        return ids;
+    }
+
     @Override
     public Film updateFilm(Film film) {
         Integer mpaId = film.getMpa().getId();
@@ -60,32 +115,112 @@ public class FilmDaoImpl implements FilmDao {
                 "WHERE id = ?";
         jdbcTemplate.update(sqlQuery, film.getName(), film.getDescription(), film.getDuration(), film.getReleaseDate(),
                 mpaId, film.getId());
-
-        String mpaName = "SELECT mpa_id, name FROM mpa WHERE mpa_id = ?";
-        Mpa mpa = jdbcTemplate.queryForObject(mpaName, this::mapRowToMpa, mpaId);
-        film.setMpa(mpa);
+        film.setMpa(mpaDao.getMpa(mpaId));
         return film;
     }
 
     @Override
     public List<Film> getFilms() {
-        String sqlQuery = "SELECT * FROM films";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm);
+        String sqlQuery = FILM_SELECT;
+        return fillGenres(jdbcTemplate.query(sqlQuery, this::mapRowToFilm));
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        String sqlQuery = FILM_SELECT + "WHERE f.id > ? ORDER BY f.id LIMIT ?";
+        return fillGenres(jdbcTemplate.query(sqlQuery, this::mapRowToFilm, afterId, limit));
+    }
+
+    /**
+     * Фильмы читаются одним запросом вместе с жанрами и передаются потребителю по мере чтения:
+     * строки одного фильма идут подряд, поэтому фильм готов, как только встречается строка следующего.
+     */
+    @Override
+    public void streamFilms(Consumer<Film> consumer) {
+        String sqlQuery = "SELECT f.*, fg.genre_id AS film_genre_id FROM films AS f " +
+                "LEFT JOIN film_genres AS fg ON f.id = fg.film_id ORDER BY f.id, fg.genre_id";
+        FilmGroupingHandler handler = new FilmGroupingHandler(consumer);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sqlQuery,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, handler);
+        handler.flush();
     }
 
     @Override
     public Film getById(Integer id) {
-        String sqlQuery = "SELECT * FROM films WHERE id = ?";
-        return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToFilm, id);
+        return findById(id)
+                .orElseThrow(() -> new NotFoundException(String.format("Film ID = %d does not exist", id)));
+    }
+
+    /**
+     * Читает фильм без отдельной проверки существования: пустой результат означает, что фильма нет.
+     */
+    @Override
+    public Optional<Film> findById(Integer id) {
+        String sqlQuery = FILM_SELECT + "WHERE f.id = ?";
+        List<Film> films = jdbcTemplate.query(sqlQuery, this::mapRowToFilm, id);
+        return fillGenres(films).stream().findFirst();
     }
 
     @Override
     public List<Film> getTopFilms(Integer count) {
-        String sqlQuery = "SELECT f.*, m.name AS mpa_name FROM films AS f " +
-                "LEFT JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN film_likes AS lk ON f.id = lk.film_id " +
-                "GROUP BY f.id ORDER BY COUNT(lk.user_id) DESC LIMIT ?";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, count);
+        String sqlQuery = FILM_SELECT + "ORDER BY f.like_count DESC, f.id LIMIT ?";
+        return fillGenres(jdbcTemplate.query(sqlQuery, this::mapRowToFilm, count));
+    }
+
+    @Override
+    public Map<Integer, Integer> getReleaseYears() {
+        String sqlQuery = "SELECT id, EXTRACT(YEAR FROM releaseDate) AS release_year FROM films " +
+                "WHERE releaseDate IS NOT NULL";
+        Map<Integer, Integer> years = new HashMap<>();
+        jdbcTemplate.query(sqlQuery, rs -> {
+            years.put(rs.getInt("id"), rs.getInt("release_year"));
+        });
+        return years;
+    }
+
+    /**
+     * Возвращает фильмы в порядке переданных id; отсутствующие id пропускаются.
+     */
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        Map<Integer, Film> films = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.size()));
+            String inSql = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            String sqlQuery = FILM_SELECT + "WHERE f.id IN (" + inSql + ")";
+            jdbcTemplate.query(sqlQuery, this::mapRowToFilm, chunk.toArray())
+                    .forEach(film -> films.put(film.getId(), film));
+        }
+        return fillGenres(ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Проверяет существование фильма и возвращает id его жанров одним запросом.
+     */
+    @Override
+    public Optional<Set<Integer>> findFilmGenreIds(Integer id) {
+        String sqlQuery = "SELECT f.id, fg.genre_id FROM films AS f " +
+                "LEFT JOIN film_genres AS fg ON f.id = fg.film_id WHERE f.id = ?";
+        return jdbcTemplate.query(sqlQuery, rs -> {
+            if (!rs.next()) {
+                return Optional.empty();
+            }
+            Set<Integer> genreIds = new HashSet<>();
+            do {
+                int genreId = rs.getInt("genre_id");
+                if (!rs.wasNull()) {
+                    genreIds.add(genreId);
+                }
+            } while (rs.next());
+            return Optional.of(genreIds);
+        }, id);
     }
 
     @Override
@@ -98,32 +233,50 @@ public class FilmDaoImpl implements FilmDao {
         return true;
     }
 
-    private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
-        int mpaId = rs.getInt("mpa_id");
-        String mpaName = "SELECT mpa_id, name FROM mpa WHERE mpa_id = ?";
-        Mpa mpa = jdbcTemplate.queryForObject(mpaName, this::mapRowToMpa, mpaId);
+    private List<Film> fillGenres(List<Film> films) {
+        Map<Integer, Set<Genre>> filmsGenres = genreDao.getFilmsGenres(
+                films.stream().map(Film::getId).collect(Collectors.toList()));
+        films.forEach(film -> film.setGenres(filmsGenres.get(film.getId())));
+        return films;
+    }
 
-        int filmId = rs.getInt("id");
-        String sql = "SELECT genre_id, name FROM genres WHERE genre_id IN" +
-                "(SELECT genre_id FROM film_genres WHERE film_id = ?)";
-        Set<Genre> genres = new HashSet<>(jdbcTemplate.query(sql, this::mapRowToGenre, filmId));
+    private class FilmGroupingHandler implements RowCallbackHandler {
+        private final Consumer<Film> consumer;
+        private Film current;
 
+        FilmGroupingHandler(Consumer<Film> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            if (current == null || current.getId() != rs.getInt("id")) {
+                flush();
+                current = mapRowToFilm(rs, rs.getRow());
+                current.setGenres(new LinkedHashSet<>());
+            }
+            int genreId = rs.getInt("film_genre_id");
+            if (!rs.wasNull()) {
+                current.getGenres().add(genreDao.getGenre(genreId));
+            }
+        }
+
+        void flush() {
+            if (current != null) {
+                consumer.accept(current);
+                current = null;
+            }
+        }
+    }
+
+    private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
         return Film.builder()
-                .id(filmId)
+                .id(rs.getInt("id"))
                 .name(rs.getString("name"))
                 .description(rs.getString("description"))
                 .duration(rs.getInt("duration"))
-                .releaseDate(rs.getDate("releaseDate").toLocalDate())
-                .mpa(mpa)
-                .genres(genres)
+                .releaseDate(rs.getObject("releaseDate", LocalDate.class))
+                .mpa(mpaDao.getMpa(rs.getInt("mpa_id")))
                 .build();
     }
-
-    private Mpa mapRowToMpa(ResultSet rs, int rowNum) throws SQLException {
-        return new Mpa(rs.getInt("mpa_id"), rs.getString("name"));
-    }
-
-    private Genre mapRowToGenre(ResultSet rs, int rowNum) throws SQLException {
-        return new Genre(rs.getInt("genre_id"), rs.getString("name"));
-    }
 }
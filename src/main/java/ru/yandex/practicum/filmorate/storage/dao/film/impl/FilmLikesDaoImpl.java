@@ -1,24 +1,133 @@
 package ru.yandex.practicum.filmorate.storage.dao.film.impl;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.storage.dao.IdListsCollector;
 import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class FilmLikesDaoImpl implements FilmLikesDao {
     private final JdbcTemplate jdbcTemplate;
+    @Value("${filmorate.likes.repair-on-startup}")
+    private boolean repairOnStartup;
 
     @Override
+    @Transactional
     public void like(Integer id, Integer userId) {
         String sql = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
         jdbcTemplate.update(sql, id, userId);
+        jdbcTemplate.update("UPDATE films SET like_count = like_count + 1 WHERE id = ?", id);
     }
 
     @Override
-    public void unlike(Integer id, Integer userId) {
+    @Transactional
+    public boolean unlike(Integer id, Integer userId) {
         String sql = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, id, userId);
+        if (jdbcTemplate.update(sql, id, userId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE films SET like_count = like_count - 1 WHERE id = ?", id);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public int writeLikes(List<int[]> likes, List<int[]> unlikes) {
+        String insertSql = "INSERT INTO film_likes (film_id, user_id) " +
+                "SELECT f.id, u.id FROM films AS f, users AS u WHERE f.id = ? AND u.id = ? " +
+                "AND NOT EXISTS (SELECT 1 FROM film_likes AS lk WHERE lk.film_id = f.id AND lk.user_id = u.id)";
+        String deleteSql = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+        Map<Integer, Integer> deltas = new HashMap<>();
+        int changed = applyBatch(insertSql, likes, 1, deltas) + applyBatch(deleteSql, unlikes, -1, deltas);
+
+        List<Map.Entry<Integer, Integer>> counts = deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .collect(Collectors.toList());
+        if (!counts.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE films SET like_count = like_count + ? WHERE id = ?",
+                    counts, counts.size(), (ps, entry) -> {
+                        ps.setInt(1, entry.getValue());
+                        ps.setInt(2, entry.getKey());
+                    });
+        }
+        return changed;
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        String sql = "SELECT f.id, COUNT(lk.user_id) AS likes FROM films AS f " +
+                "LEFT JOIN film_likes AS lk ON f.id = lk.film_id GROUP BY f.id";
+        Map<Integer, Integer> counts = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            counts.put(rs.getInt("id"), rs.getInt("likes"));
+        });
+        return counts;
+    }
+
+    /**
+     * Id фильмов, которым поставил лайк каждый пользователь, по возрастанию, одним проходом по film_likes.
+     */
+    @Override
+    public Map<Integer, int[]> getLikedFilmIdsByUser() {
+        String sql = "SELECT user_id, film_id FROM film_likes ORDER BY user_id, film_id";
+        IdListsCollector collector = new IdListsCollector("user_id", "film_id");
+        jdbcTemplate.query(sql, collector);
+        return collector.finish();
+    }
+
+    /**
+     * Пересчитывает films.like_count по таблице film_likes для фильмов, у которых счётчик разошёлся с данными.
+     */
+    @Override
+    public int repairLikeCounts() {
+        String sql = "UPDATE films AS f " +
+                "SET like_count = (SELECT COUNT(*) FROM film_likes AS lk WHERE lk.film_id = f.id) " +
+                "WHERE like_count <> (SELECT COUNT(*) FROM film_likes AS lk WHERE lk.film_id = f.id)";
+        return jdbcTemplate.update(sql);
+    }
+
+    /**
+     * Выполняет пакет по парам {id фильма, id пользователя} и копит изменение числа лайков по фильмам.
+     */
+    private int applyBatch(String sql, List<int[]> rows, int delta, Map<Integer, Integer> deltas) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        int[][] updated = jdbcTemplate.batchUpdate(sql, rows, rows.size(), (ps, row) -> {
+            ps.setInt(1, row[0]);
+            ps.setInt(2, row[1]);
+        });
+        int changed = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            if (updated[0][i] > 0) {
+                deltas.merge(rows.get(i)[0], delta, Integer::sum);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void repairLikeCountsOnStartup() {
+        if (!repairOnStartup) {
+            return;
+        }
+        int repaired = repairLikeCounts();
+        if (repaired > 0) {
+            log.warn("Like counters of {} films were out of sync with film_likes and have been repaired", repaired);
+        }
     }
 }
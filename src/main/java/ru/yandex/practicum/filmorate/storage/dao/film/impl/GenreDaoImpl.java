@@ -1,23 +1,38 @@
 package ru.yandex.practicum.filmorate.storage.dao.film.impl;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.cache.ReferenceCache;
+import ru.yandex.practicum.filmorate.storage.dao.IdListsCollector;
 import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Component
-@RequiredArgsConstructor
 public class GenreDaoImpl implements GenreDao {
+    private static final int IN_LIST_CHUNK_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceCache<Genre> genreCache;
+
+    public GenreDaoImpl(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.genreCache = new ReferenceCache<>("genres", this::loadAllGenres, Genre::getId, meterRegistry);
+    }
 
     @Override
     public void addGenreInFilm(Integer filmId, Integer genreId) {
@@ -25,28 +40,93 @@ public class GenreDaoImpl implements GenreDao {
         jdbcTemplate.update(sql, filmId, genreId);
     }
 
+    @Override
+    public void addFilmGenres(Integer filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sql, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+        });
+    }
+
+    /**
+     * Добавляет жанры нескольких фильмов одним пакетом.
+     */
+    @Override
+    public void addFilmsGenres(Map<Integer, ? extends Collection<Integer>> filmsGenreIds) {
+        List<int[]> rows = new ArrayList<>();
+        filmsGenreIds.forEach((filmId, genreIds) -> genreIds.forEach(genreId -> rows.add(new int[]{filmId, genreId})));
+        if (rows.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sql, rows, rows.size(), (ps, row) -> {
+            ps.setInt(1, row[0]);
+            ps.setInt(2, row[1]);
+        });
+    }
+
+    @Override
+    public void deleteFilmGenres(Integer filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
+        jdbcTemplate.batchUpdate(sql, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+        });
+    }
+
     @Override
     public Set<Genre> getFilmGenres(Integer filmId) {
-        String sql = "SELECT genre_id, name FROM genres WHERE genre_id IN" +
-                "(SELECT genre_id FROM film_genres WHERE film_id = ?)";
-        return new HashSet<>(jdbcTemplate.query(sql, this::mapRowToGenre, filmId));
+        String sql = "SELECT genre_id FROM film_genres WHERE film_id = ? ORDER BY genre_id";
+        return new LinkedHashSet<>(jdbcTemplate.query(sql, (rs, rowNum) -> getGenre(rs.getInt("genre_id")), filmId));
     }
 
     @Override
-    public Genre getGenre(Integer id) {
-        String sql = "SELECT * FROM genres WHERE genre_id = ?";
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql, id);
-        if (rowSet.next()) {
-            return jdbcTemplate.queryForObject(sql, this::mapRowToGenre, id);
-        } else {
-            throw new NotFoundException(String.format("Genre ID = %d does not exist", id));
+    public Map<Integer, Set<Genre>> getFilmsGenres(Collection<Integer> filmIds) {
+        Map<Integer, Set<Genre>> filmsGenres = new HashMap<>();
+        for (Integer filmId : filmIds) {
+            filmsGenres.put(filmId, new LinkedHashSet<>());
         }
+
+        List<Integer> ids = new ArrayList<>(filmsGenres.keySet());
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.size()));
+            String inSql = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT film_id, genre_id FROM film_genres " +
+                    "WHERE film_id IN (" + inSql + ") ORDER BY film_id, genre_id";
+            jdbcTemplate.query(sql, rs -> {
+                filmsGenres.get(rs.getInt("film_id")).add(getGenre(rs.getInt("genre_id")));
+            }, chunk.toArray());
+        }
+        return filmsGenres;
+    }
+
+    /**
+     * Id жанров каждого фильма по возрастанию, одним проходом по film_genres.
+     */
+    @Override
+    public Map<Integer, int[]> getGenreIdsByFilm() {
+        String sql = "SELECT film_id, genre_id FROM film_genres ORDER BY film_id, genre_id";
+        IdListsCollector collector = new IdListsCollector("film_id", "genre_id");
+        jdbcTemplate.query(sql, collector);
+        return collector.finish();
+    }
+
+    @Override
+    public Genre getGenre(Integer id) {
+        return genreCache.get(id)
+                .orElseThrow(() -> new NotFoundException(String.format("Genre ID = %d does not exist", id)));
     }
 
     @Override
     public List<Genre> getAllGenres() {
-        String sqlQuery = "SELECT * FROM genres";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToGenre);
+        return genreCache.getAll();
     }
 
     @Override
@@ -55,6 +135,24 @@ public class GenreDaoImpl implements GenreDao {
         jdbcTemplate.update(sql, filmId);
     }
 
+    @Override
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${filmorate.reference-cache.refresh-interval}",
+            initialDelayString = "${filmorate.reference-cache.refresh-interval}")
+    public void refresh() {
+        genreCache.reload();
+    }
+
+    @Override
+    public long getVersion() {
+        return genreCache.getVersion();
+    }
+
+    private List<Genre> loadAllGenres() {
+        String sqlQuery = "SELECT * FROM genres ORDER BY genre_id";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToGenre);
+    }
+
     private Genre mapRowToGenre(ResultSet rs, int rowNum) throws SQLException {
         return new Genre(
                 rs.getInt("genre_id"),
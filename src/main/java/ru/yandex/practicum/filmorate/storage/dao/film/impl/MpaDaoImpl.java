@@ -1,36 +1,55 @@
 package ru.yandex.practicum.filmorate.storage.dao.film.impl;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.cache.ReferenceCache;
 import ru.yandex.practicum.filmorate.storage.dao.film.MpaDao;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 
 @Component
-@RequiredArgsConstructor
 public class MpaDaoImpl implements MpaDao {
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceCache<Mpa> mpaCache;
+
+    public MpaDaoImpl(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mpaCache = new ReferenceCache<>("mpa", this::loadAllMpa, Mpa::getId, meterRegistry);
+    }
 
     @Override
     public Mpa getMpa(Integer id) {
-        String sql = "SELECT * FROM mpa WHERE mpa_id = ?";
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql, id);
-        if (rowSet.next()) {
-            return jdbcTemplate.queryForObject(sql, this::mapRowToMpa, id);
-        } else {
-            throw new NotFoundException(String.format("MPA with ID = %d does not exist", id));
-        }
+        return mpaCache.get(id)
+                .orElseThrow(() -> new NotFoundException(String.format("MPA with ID = %d does not exist", id)));
     }
 
     @Override
     public List<Mpa> getAllMpa() {
-        String sqlQuery = "SELECT * FROM mpa";
+        return mpaCache.getAll();
+    }
+
+    @Override
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${filmorate.reference-cache.refresh-interval}",
+            initialDelayString = "${filmorate.reference-cache.refresh-interval}")
+    public void refresh() {
+        mpaCache.reload();
+    }
+
+    @Override
+    public long getVersion() {
+        return mpaCache.getVersion();
+    }
+
+    private List<Mpa> loadAllMpa() {
+        String sqlQuery = "SELECT * FROM mpa ORDER BY mpa_id";
         return jdbcTemplate.query(sqlQuery, this::mapRowToMpa);
     }
 
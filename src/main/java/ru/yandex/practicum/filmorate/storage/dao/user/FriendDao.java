@@ -3,13 +3,16 @@ package ru.yandex.practicum.filmorate.storage.dao.user;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.Map;
 
 public interface FriendDao {
-    void addFriend(Integer id, Integer friendId);
+    boolean addFriend(Integer id, Integer friendId);
 
-    void deleteFriend(Integer id, Integer friendId);
+    boolean deleteFriend(Integer id, Integer friendId);
 
     List<User> getCommonFriends(Integer id, Integer otherId);
 
     List<User> getAllFriends(Integer id);
+
+    Map<Integer, int[]> getFriendIdsByUser();
 }
@@ -1,7 +1,25 @@
 package ru.yandex.practicum.filmorate.storage.dao.user;
 
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
 public interface UserDao extends UserStorage {
     boolean checkUserExist(Integer id);
+
+    Optional<User> findById(Integer id);
+
+    List<User> getUsersByIds(List<Integer> ids);
+
+    List<User> createUsers(List<User> users);
+
+    List<User> findByEmailsOrLogins(Collection<String> emails, Collection<String> logins);
+
+    List<User> getUsersPage(int afterId, int limit);
+
+    void streamUsers(Consumer<User> consumer);
 }
@@ -1,14 +1,18 @@
 package ru.yandex.practicum.filmorate.storage.dao.user.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.dao.IdListsCollector;
 import ru.yandex.practicum.filmorate.storage.dao.user.FriendDao;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -17,16 +21,26 @@ import java.util.stream.Collectors;
 public class FriendDaoImpl implements FriendDao {
     private final JdbcTemplate jdbcTemplate;
 
+    /**
+     * Добавляет дружбу одним запросом. Возвращает false, если одного из пользователей нет;
+     * повторное добавление отклоняется первичным ключом.
+     */
     @Override
-    public void addFriend(Integer id, Integer friendId) {
-        String sqlQuery = "MERGE INTO friendship (user_id, friend_user_id) VALUES (?,?)";
-        jdbcTemplate.update(sqlQuery, id, friendId);
+    public boolean addFriend(Integer id, Integer friendId) {
+        String sqlQuery = "INSERT INTO friendship (user_id, friend_user_id) " +
+                "SELECT u.id, f.id FROM users AS u, users AS f WHERE u.id = ? AND f.id = ?";
+        try {
+            return jdbcTemplate.update(sqlQuery, id, friendId) > 0;
+        } catch (DuplicateKeyException e) {
+            throw new AlreadyExistException(String.format(
+                    "User with ID = %d is ALREADY friends with user with ID = %d", friendId, id), e);
+        }
     }
 
     @Override
-    public void deleteFriend(Integer id, Integer friendId) {
+    public boolean deleteFriend(Integer id, Integer friendId) {
         String sqlQuery = "DELETE FROM friendship WHERE user_id = ? AND friend_user_id = ?";
-        jdbcTemplate.update(sqlQuery, id, friendId);
+        return jdbcTemplate.update(sqlQuery, id, friendId) > 0;
     }
 
     @Override
@@ -46,6 +60,17 @@ public class FriendDaoImpl implements FriendDao {
         return getUsersFromRowSet(rs);
     }
 
+    /**
+     * Id друзей каждого пользователя по возрастанию, одним проходом по friendship.
+     */
+    @Override
+    public Map<Integer, int[]> getFriendIdsByUser() {
+        String sqlQuery = "SELECT user_id, friend_user_id FROM friendship ORDER BY user_id, friend_user_id";
+        IdListsCollector collector = new IdListsCollector("user_id", "friend_user_id");
+        jdbcTemplate.query(sqlQuery, collector);
+        return collector.finish();
+    }
+
     private List<User> getUsersFromRowSet(SqlRowSet rs) {
         List<User> users = new ArrayList<>();
         while (rs.next()) {
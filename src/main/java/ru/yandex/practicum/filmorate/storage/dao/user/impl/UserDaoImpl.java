@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.storage.dao.user.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
@@ -14,13 +15,24 @@ import ru.yandex.practicum.filmorate.storage.dao.user.UserDao;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component("userDaoImpl")
 @RequiredArgsConstructor
 @Slf4j
 public class UserDaoImpl implements UserDao {
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int IN_LIST_CHUNK_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
 
     @Override
@@ -40,6 +52,47 @@ public class UserDaoImpl implements UserDao {
         return user;
     }
 
+    /**
+     * Добавляет пользователей одним пакетом; id затем читаются по логинам, которые уникальны.
+     */
+    @Override
+    public List<User> createUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        String sqlQuery = "INSERT INTO users (email, login, name, birthday) VALUES (?,?,?,?)";
+        jdbcTemplate.batchUpdate(sqlQuery, users, users.size(), (ps, user) -> {
+            ps.setString(1, user.getEmail());
+            ps.setString(2, user.getLogin());
+            ps.setString(3, user.getName());
+            ps.setDate(4, java.sql.Date.valueOf(user.getBirthday()));
+        });
+
+        List<String> logins = users.stream().map(User::getLogin).collect(Collectors.toList());
+        Map<String, Integer> ids = new HashMap<>();
+        jdbcTemplate.query("SELECT id, login FROM users WHERE login IN (" + placeholders(logins.size()) + ")", rs -> {
+            ids.put(rs.getString("login"), rs.getInt("id"));
+        }, logins.toArray());
+        users.forEach(user -> user.setId(ids.get(user.getLogin())));
+        return users;
+    }
+
+    /**
+     * Пользователи, у которых совпадает email или логин хотя бы с одним из переданных, одним запросом.
+     * Условия объединены через UNION, чтобы каждое искалось по своему уникальному индексу.
+     */
+    @Override
+    public List<User> findByEmailsOrLogins(Collection<String> emails, Collection<String> logins) {
+        if (emails.isEmpty() && logins.isEmpty()) {
+            return List.of();
+        }
+        List<Object> params = new ArrayList<>(emails);
+        params.addAll(logins);
+        String sqlQuery = "SELECT * FROM users WHERE email IN (" + placeholders(emails.size()) + ") " +
+                "UNION SELECT * FROM users WHERE login IN (" + placeholders(logins.size()) + ") ORDER BY id";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, params.toArray());
+    }
+
     @Override
     public User updateUser(User user) {
         String sqlQuery = "UPDATE users SET " +
@@ -59,10 +112,51 @@ public class UserDaoImpl implements UserDao {
         return jdbcTemplate.query(sqlQuery, this::mapRowToUser);
     }
 
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        String sqlQuery = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, afterId, limit);
+    }
+
+    @Override
+    public void streamUsers(Consumer<User> consumer) {
+        String sqlQuery = "SELECT * FROM users ORDER BY id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sqlQuery,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRowToUser(rs, rs.getRow())));
+    }
+
     @Override
     public User getById(Integer id) {
+        return findById(id)
+                .orElseThrow(() -> new NotFoundException(String.format("User ID = %d does not exist", id)));
+    }
+
+    @Override
+    public Optional<User> findById(Integer id) {
         String sqlQuery = "SELECT * FROM users WHERE id = ?";
-        return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToUser, id);
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, id).stream().findFirst();
+    }
+
+    /**
+     * Возвращает пользователей в порядке переданных id; отсутствующие id пропускаются.
+     */
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        Map<Integer, User> users = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.size()));
+            String sqlQuery = "SELECT * FROM users WHERE id IN (" + placeholders(chunk.size()) + ")";
+            jdbcTemplate.query(sqlQuery, this::mapRowToUser, chunk.toArray())
+                    .forEach(user -> users.put(user.getId(), user));
+        }
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @Override
@@ -75,6 +169,10 @@ public class UserDaoImpl implements UserDao {
         return true;
     }
 
+    private String placeholders(int count) {
+        return count == 0 ? "NULL" : String.join(",", Collections.nCopies(count, "?"));
+    }
+
     private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
         return User.builder()
                 .id(rs.getInt("id"))
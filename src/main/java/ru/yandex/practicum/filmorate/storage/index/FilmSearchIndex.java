@@ -0,0 +1,284 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс для поиска фильмов по названию и описанию. Для каждого слова хранится
+ * отсортированный массив номеров документов, для каждой триграммы — слова словаря, в которые она входит.
+ * Документ — версия фильма: изменение фильма помечает старый документ удалённым и добавляет новый,
+ * поэтому номера только растут и массивы пополняются в конец. Удалённые документы вычищаются из массивов,
+ * когда их набирается много. Слово запроса совпадает с документом, если в документе есть слово, содержащее
+ * его подстрокой (кандидаты берутся по самой редкой триграмме и сверяются с самим словом), или само слово,
+ * если оно короче триграммы; документ должен совпасть со всеми словами запроса.
+ * Оценка: слово целиком в названии — 3, в описании — 2, совпадение по триграммам — 1.
+ */
+@Component
+@Slf4j
+public class FilmSearchIndex {
+    private static final int NGRAM = 3;
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 2;
+    private static final int NGRAM_WEIGHT = 1;
+    // доля удалённых документов, после которой они вычищаются из массивов
+    private static final int PURGE_RATIO = 4;
+    private static final int MIN_PURGE = 1024;
+
+    private final FilmDao filmDao;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> nameWords = new HashMap<>();
+    private final Map<String, Postings> descriptionWords = new HashMap<>();
+    private final Map<String, Set<String>> ngramWords = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private int[] docFilms = new int[1024];
+    private int docCount;
+    // номер документа фильма + 1 по id фильма, 0 — фильм не проиндексирован
+    private int[] filmDocs = new int[1024];
+    private int deletedSincePurge;
+
+    public FilmSearchIndex(FilmDao filmDao) {
+        this.filmDao = filmDao;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            nameWords.clear();
+            descriptionWords.clear();
+            ngramWords.clear();
+            deleted.clear();
+            docFilms = new int[1024];
+            filmDocs = new int[1024];
+            docCount = 0;
+            deletedSincePurge = 0;
+            filmDao.streamFilms(this::addDocument);
+            log.info("Film search index rebuilt for {} films, {} words and {} trigrams",
+                    docCount, nameWords.size() + descriptionWords.size(), ngramWords.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Индексирует новый фильм или заменяет документ изменённого.
+     */
+    public void putFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            int filmId = film.getId();
+            if (filmId < filmDocs.length && filmDocs[filmId] != 0) {
+                deleted.set(filmDocs[filmId] - 1);
+                deletedSincePurge++;
+            }
+            addDocument(film);
+            if (deletedSincePurge >= MIN_PURGE && deletedSincePurge * PURGE_RATIO >= docCount) {
+                purge();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Id найденных фильмов по убыванию оценки, при равной оценке — по возрастанию id.
+     */
+    public int[] search(String query, int offset, int limit) {
+        Set<String> words = new LinkedHashSet<>(words(query));
+        if (words.isEmpty()) {
+            return SortedEdges.NO_IDS;
+        }
+        lock.readLock().lock();
+        try {
+            int[] docs = null;
+            for (String word : words) {
+                int[] wordDocs = matchingDocs(word);
+                docs = docs == null ? wordDocs : SortedIds.intersect(docs, docs.length, wordDocs, wordDocs.length);
+                if (docs.length == 0) {
+                    return SortedEdges.NO_IDS;
+                }
+            }
+            TopK top = new TopK(offset + limit);
+            for (int doc : docs) {
+                if (!deleted.get(doc)) {
+                    top.offer(score(words, doc), docFilms[doc]);
+                }
+            }
+            int[] ranked = top.drainIds();
+            return offset >= ranked.length ? SortedEdges.NO_IDS : Arrays.copyOfRange(ranked, offset, ranked.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Слова текста в нижнем регистре: последовательности букв и цифр, «ё» приравнена к «е».
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private void addDocument(Film film) {
+        int doc = docCount++;
+        if (doc == docFilms.length) {
+            docFilms = Arrays.copyOf(docFilms, doc * 2);
+        }
+        docFilms[doc] = film.getId();
+        if (film.getId() >= filmDocs.length) {
+            filmDocs = Arrays.copyOf(filmDocs, Math.max(film.getId() + 1, filmDocs.length * 2));
+        }
+        filmDocs[film.getId()] = doc + 1;
+        addWords(nameWords, film.getName(), doc);
+        addWords(descriptionWords, film.getDescription(), doc);
+    }
+
+    private void addWords(Map<String, Postings> postings, String text, int doc) {
+        for (String word : words(text)) {
+            postings.computeIfAbsent(word, w -> new Postings()).add(doc);
+            for (int i = 0; i + NGRAM <= word.length(); i++) {
+                ngramWords.computeIfAbsent(word.substring(i, i + NGRAM), w -> new HashSet<>()).add(word);
+            }
+        }
+    }
+
+    private int[] matchingDocs(String word) {
+        if (word.length() < NGRAM) {
+            Postings name = nameWords.getOrDefault(word, Postings.EMPTY);
+            Postings description = descriptionWords.getOrDefault(word, Postings.EMPTY);
+            return SortedIds.union(name.docs, name.size, description.docs, description.size);
+        }
+        // триграммы документа могут принадлежать разным словам, поэтому кандидаты сверяются со словом запроса
+        Set<String> candidates = null;
+        for (int i = 0; i + NGRAM <= word.length(); i++) {
+            Set<String> ngramCandidates = ngramWords.get(word.substring(i, i + NGRAM));
+            if (ngramCandidates == null) {
+                return SortedEdges.NO_IDS;
+            }
+            if (candidates == null || ngramCandidates.size() < candidates.size()) {
+                candidates = ngramCandidates;
+            }
+        }
+        BitSet docs = new BitSet();
+        for (String candidate : candidates) {
+            if (candidate.contains(word)) {
+                addDocs(docs, nameWords.get(candidate));
+                addDocs(docs, descriptionWords.get(candidate));
+            }
+        }
+        return docs.stream().toArray();
+    }
+
+    private static void addDocs(BitSet docs, Postings postings) {
+        if (postings != null) {
+            for (int i = 0; i < postings.size; i++) {
+                docs.set(postings.docs[i]);
+            }
+        }
+    }
+
+    private int score(Set<String> words, int doc) {
+        int score = 0;
+        for (String word : words) {
+            if (nameWords.getOrDefault(word, Postings.EMPTY).contains(doc)) {
+                score += NAME_WEIGHT;
+            } else if (descriptionWords.getOrDefault(word, Postings.EMPTY).contains(doc)) {
+                score += DESCRIPTION_WEIGHT;
+            } else {
+                score += NGRAM_WEIGHT;
+            }
+        }
+        return score;
+    }
+
+    private void purge() {
+        int removed = 0;
+        for (Map<String, Postings> postings : List.of(nameWords, descriptionWords)) {
+            Iterator<Postings> iterator = postings.values().iterator();
+            while (iterator.hasNext()) {
+                Postings list = iterator.next();
+                removed += list.removeAll(deleted);
+                if (list.size == 0) {
+                    iterator.remove();
+                }
+            }
+        }
+        Iterator<Set<String>> words = ngramWords.values().iterator();
+        while (words.hasNext()) {
+            Set<String> ngramCandidates = words.next();
+            ngramCandidates.removeIf(word -> !nameWords.containsKey(word) && !descriptionWords.containsKey(word));
+            if (ngramCandidates.isEmpty()) {
+                words.remove();
+            }
+        }
+        deletedSincePurge = 0;
+        log.info("Film search index purged {} postings of replaced films", removed);
+    }
+
+    /**
+     * Растущий отсортированный массив номеров документов.
+     */
+    private static class Postings {
+        private static final Postings EMPTY = new Postings();
+
+        private int[] docs = new int[2];
+        private int size;
+
+        private void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return; // слово повторяется в том же документе
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        private boolean contains(int doc) {
+            return SortedIds.contains(docs, size, doc);
+        }
+
+        private int removeAll(BitSet removedDocs) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removedDocs.get(docs[i])) {
+                    docs[kept++] = docs[i];
+                }
+            }
+            int removed = size - kept;
+            size = kept;
+            return removed;
+        }
+    }
+}
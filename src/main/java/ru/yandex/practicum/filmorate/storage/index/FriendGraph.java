@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Map;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя — отсортированный массив id друзей,
+ * чтение идёт без блокировок. Рёбра направленные, как в таблице friendship;
+ * для поиска рекомендаций хранятся и обратные рёбра.
+ */
+public class FriendGraph {
+    private final SortedEdges edges = new SortedEdges();
+
+    public boolean addFriend(int userId, int friendId) {
+        return edges.add(userId, friendId);
+    }
+
+    public boolean removeFriend(int userId, int friendId) {
+        return edges.remove(userId, friendId);
+    }
+
+    public boolean isFriend(int userId, int friendId) {
+        return edges.contains(userId, friendId);
+    }
+
+    /**
+     * Id друзей по возрастанию.
+     */
+    public int[] getFriends(int userId) {
+        return friendsOf(userId).clone();
+    }
+
+    /**
+     * Id пользователей, добавивших userId в друзья, по возрастанию. Массив нельзя изменять.
+     */
+    int[] followersOf(int userId) {
+        return edges.sources(userId);
+    }
+
+    /**
+     * Id друзей по возрастанию без копирования. Массив нельзя изменять.
+     */
+    int[] friendsOf(int userId) {
+        return edges.targets(userId);
+    }
+
+    /**
+     * Id общих друзей по возрастанию.
+     */
+    public int[] getCommonFriends(int userId, int otherId) {
+        return intersect(friendsOf(userId), friendsOf(otherId));
+    }
+
+    /**
+     * Заменяет граф целиком; массивы должны быть отсортированы и далее не изменяться.
+     */
+    public void replaceAll(Map<Integer, int[]> friendsByUser) {
+        edges.replaceAll(friendsByUser);
+    }
+
+    /**
+     * Пересечение отсортированных массивов, см. SortedIds.intersect.
+     */
+    static int[] intersect(int[] first, int[] second) {
+        return SortedIds.intersect(first, first.length, second, second.length);
+    }
+}
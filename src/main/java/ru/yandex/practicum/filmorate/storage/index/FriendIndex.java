@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.dao.user.FriendDao;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Граф дружбы для режима с БД: строится из friendship при старте и периодически перестраивается.
+ * Запись дружбы в таблицу и изменение графа идут вместе под блокировкой пары пользователей,
+ * поэтому параллельные добавление и удаление одной дружбы не расходятся с таблицей,
+ * а перестроение ждёт завершения начатых изменений.
+ */
+@Component
+@Slf4j
+public class FriendIndex extends FriendGraph {
+    private static final int PAIR_LOCK_STRIPES = 64;
+
+    private final FriendDao friendDao;
+    // изменения идут под разделяемой блокировкой, перестроение — под исключающей
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private final Object[] pairLocks = new Object[PAIR_LOCK_STRIPES];
+
+    public FriendIndex(FriendDao friendDao) {
+        this.friendDao = friendDao;
+        for (int i = 0; i < PAIR_LOCK_STRIPES; i++) {
+            pairLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${filmorate.friends.index.rebuild-interval}",
+            initialDelayString = "${filmorate.friends.index.rebuild-interval}")
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            Map<Integer, int[]> friendsByUser = friendDao.getFriendIdsByUser();
+            replaceAll(friendsByUser);
+            log.info("Friend index rebuilt for {} users", friendsByUser.size());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param write добавление дружбы в БД; возвращает false, если она не добавлена
+     * @return результат write
+     */
+    public boolean addFriend(int userId, int friendId, BooleanSupplier write) {
+        return change(userId, friendId, () -> {
+            if (!write.getAsBoolean()) {
+                return false;
+            }
+            addFriend(userId, friendId);
+            return true;
+        });
+    }
+
+    /**
+     * @param write удаление дружбы из БД; возвращает false, если её не было
+     * @return результат write
+     */
+    public boolean removeFriend(int userId, int friendId, BooleanSupplier write) {
+        return change(userId, friendId, () -> {
+            if (!write.getAsBoolean()) {
+                return false;
+            }
+            removeFriend(userId, friendId);
+            return true;
+        });
+    }
+
+    private boolean change(int userId, int friendId, BooleanSupplier change) {
+        rebuildLock.readLock().lock();
+        try {
+            synchronized (pairLocks[Math.floorMod(userId * 31 + friendId, PAIR_LOCK_STRIPES)]) {
+                return change.getAsBoolean();
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+}
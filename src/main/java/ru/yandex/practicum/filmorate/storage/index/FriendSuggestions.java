@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Рекомендации друзей: кандидаты — пользователи, добавившие в друзья тех же людей, что и пользователь,
+ * ранжированные по числу общих друзей (как в getCommonFriends). Работа ограничена: у пользователя
+ * просматриваются не больше maxFriends друзей, у каждого друга — не больше maxFollowers обратных рёбер,
+ * из кандидатов отбираются лучшие через кучу размера limit (TopK).
+ * Для активных пользователей с большим числом друзей результат считается заранее в фоне
+ * и сбрасывается при изменении дружбы, влияющем на их выдачу.
+ */
+@Component
+@Slf4j
+public class FriendSuggestions {
+    static final int PRECOMPUTED_LIMIT = 100;
+    private static final int MAX_ACTIVE_USERS = 10_000;
+    private static final int[] DEGREE_BUCKETS = {100, 1000};
+    private static final String[] DEGREE_TAGS = {"0-99", "100-999", "1000+"};
+
+    private final FriendGraph graph;
+    private final int maxFriends;
+    private final int maxFollowers;
+    private final boolean precomputeEnabled;
+    private final int activeMinFriends;
+    private final Timer[] timers = new Timer[DEGREE_TAGS.length];
+    // поколение выдачи активного пользователя, увеличивается при каждом сбросе
+    private final ConcurrentMap<Integer, AtomicLong> activeUsers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, int[]> precomputed = new ConcurrentHashMap<>();
+
+    public FriendSuggestions(FriendGraph graph, MeterRegistry meterRegistry,
+                             @Value("${filmorate.friends.suggestions.max-friends}") int maxFriends,
+                             @Value("${filmorate.friends.suggestions.max-followers}") int maxFollowers,
+                             @Value("${filmorate.friends.suggestions.precompute-enabled}") boolean precomputeEnabled,
+                             @Value("${filmorate.friends.suggestions.precompute-min-friends}") int activeMinFriends) {
+        this.graph = graph;
+        this.maxFriends = maxFriends;
+        this.maxFollowers = maxFollowers;
+        this.precomputeEnabled = precomputeEnabled;
+        this.activeMinFriends = activeMinFriends;
+        for (int i = 0; i < DEGREE_TAGS.length; i++) {
+            timers[i] = Timer.builder("filmorate.friends.suggestions")
+                    .description("Time to rank friend suggestions by the number of user's friends")
+                    .tag("degree", DEGREE_TAGS[i])
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Id рекомендованных пользователей: по убыванию числа общих друзей, при равенстве — по возрастанию id.
+     */
+    public int[] suggest(int userId, int limit) {
+        int degree = graph.friendsOf(userId).length;
+        return timer(degree).record(() -> {
+            if (!precomputeEnabled || degree < activeMinFriends) {
+                return rank(userId, limit);
+            }
+            if (activeUsers.size() < MAX_ACTIVE_USERS) {
+                activeUsers.putIfAbsent(userId, new AtomicLong());
+            }
+            int[] cached = precomputed.get(userId);
+            if (cached != null && (limit <= cached.length || cached.length < PRECOMPUTED_LIMIT)) {
+                return Arrays.copyOf(cached, Math.min(limit, cached.length));
+            }
+            if (limit > PRECOMPUTED_LIMIT) {
+                return rank(userId, limit);
+            }
+            int[] ranked = store(userId);
+            return Arrays.copyOf(ranked, Math.min(limit, ranked.length));
+        });
+    }
+
+    /**
+     * Сбрасывает заранее посчитанные выдачи после изменения ребра userId -> friendId:
+     * меняется выдача самого userId и число общих друзей с userId у всех, кто дружит с friendId.
+     */
+    public void invalidate(int userId, int friendId) {
+        invalidate(userId);
+        for (int followerId : graph.followersOf(friendId)) {
+            invalidate(followerId);
+        }
+    }
+
+    /**
+     * Пересчитывает в фоне выдачи активных пользователей, сброшенные после изменений дружбы.
+     */
+    @Scheduled(fixedDelayString = "${filmorate.friends.suggestions.precompute-interval}",
+            initialDelayString = "${filmorate.friends.suggestions.precompute-interval}")
+    public void precompute() {
+        if (!precomputeEnabled) {
+            return;
+        }
+        int computed = 0;
+        for (Integer userId : activeUsers.keySet()) {
+            if (!precomputed.containsKey(userId)) {
+                store(userId);
+                computed++;
+            }
+        }
+        if (computed > 0) {
+            log.info("Friend suggestions precomputed for {} users", computed);
+        }
+    }
+
+    private int[] store(int userId) {
+        AtomicLong generation = activeUsers.get(userId);
+        long before = generation == null ? 0 : generation.get();
+        int[] ranked = rank(userId, PRECOMPUTED_LIMIT);
+        if (generation != null) {
+            precomputed.put(userId, ranked);
+            if (generation.get() != before) {
+                precomputed.remove(userId); // дружба изменилась во время расчёта
+            }
+        }
+        return ranked;
+    }
+
+    private void invalidate(int userId) {
+        AtomicLong generation = activeUsers.get(userId);
+        if (generation != null) {
+            generation.incrementAndGet();
+            precomputed.remove(userId);
+        }
+    }
+
+    int[] rank(int userId, int limit) {
+        int[] friends = graph.friendsOf(userId);
+        int[] candidates = new int[0];
+        int count = 0;
+        for (int i = 0; i < Math.min(friends.length, maxFriends); i++) {
+            int[] followers = graph.followersOf(friends[i]);
+            int scanned = Math.min(followers.length, maxFollowers);
+            if (count + scanned > candidates.length) {
+                candidates = Arrays.copyOf(candidates, Math.max(count + scanned, candidates.length * 2));
+            }
+            for (int j = 0; j < scanned; j++) {
+                int candidateId = followers[j];
+                if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                    candidates[count++] = candidateId;
+                }
+            }
+        }
+        // после сортировки число общих друзей кандидата равно длине серии его id
+        Arrays.sort(candidates, 0, count);
+        TopK top = new TopK(limit);
+        int i = 0;
+        while (i < count) {
+            int j = i;
+            while (j < count && candidates[j] == candidates[i]) {
+                j++;
+            }
+            top.offer(j - i, candidates[i]);
+            i = j;
+        }
+        return top.drainIds();
+    }
+
+    private Timer timer(int degree) {
+        int bucket = 0;
+        while (bucket < DEGREE_BUCKETS.length && degree >= DEGREE_BUCKETS[bucket]) {
+            bucket++;
+        }
+        return timers[bucket];
+    }
+}
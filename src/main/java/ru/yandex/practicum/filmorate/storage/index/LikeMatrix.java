@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Разреженная матрица лайков пользователь × фильм в памяти: строится из film_likes при старте,
+ * далее LikeWriteBuffer обновляет её вместе с записью в таблицу и периодически сверяет с таблицей.
+ * Рекомендации: похожесть пользователей — число общих лайков, она считается параллельно (fork-join)
+ * по пользователям, лайкнувшим хотя бы один фильм пользователя. Работа ограничена: просматриваются
+ * не больше maxLikes фильмов пользователя и не больше maxLikers лайкнувших каждый фильм.
+ * Фильмы NEIGHBOURS самых похожих пользователей, которых он ещё не лайкал, оцениваются
+ * суммой похожести лайкнувших их соседей.
+ */
+@Component
+@Slf4j
+public class LikeMatrix {
+    static final int NEIGHBOURS = 50;
+    // меньше кандидатов выгоднее обработать в одном потоке
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private final FilmLikesDao filmLikesDao;
+    private final int maxLikes;
+    private final int maxLikers;
+    private final SortedEdges likes = new SortedEdges();
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    public LikeMatrix(FilmLikesDao filmLikesDao,
+                      @Value("${filmorate.recommendations.max-likes}") int maxLikes,
+                      @Value("${filmorate.recommendations.max-likers}") int maxLikers) {
+        this.filmLikesDao = filmLikesDao;
+        this.maxLikes = maxLikes;
+        this.maxLikers = maxLikers;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, int[]> filmsByUser = filmLikesDao.getLikedFilmIdsByUser();
+        likes.replaceAll(filmsByUser);
+        log.info("Like matrix rebuilt for {} users", filmsByUser.size());
+    }
+
+    public void like(int userId, int filmId) {
+        likes.add(userId, filmId);
+    }
+
+    public void unlike(int userId, int filmId) {
+        likes.remove(userId, filmId);
+    }
+
+    public boolean isLiked(int userId, int filmId) {
+        return likes.contains(userId, filmId);
+    }
+
+    /**
+     * Id рекомендованных фильмов от лучшего к худшему, при равной оценке — по возрастанию id.
+     */
+    public int[] recommend(int userId, int limit) {
+        int[] liked = likes.targets(userId);
+        if (liked.length == 0) {
+            return SortedEdges.NO_IDS;
+        }
+        int[] candidates = usersWithCommonLikes(userId, liked);
+        long[] neighbours = pool.invoke(new SimilarityTask(liked, candidates, 0, candidates.length)).drain();
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (long neighbour : neighbours) {
+            int similarity = TopK.score(neighbour);
+            for (int filmId : likes.targets(TopK.id(neighbour))) {
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    scores.merge(filmId, similarity, Integer::sum);
+                }
+            }
+        }
+        TopK top = new TopK(limit);
+        scores.forEach((filmId, score) -> top.offer(score, filmId));
+        return top.drainIds();
+    }
+
+    /**
+     * Id других пользователей, лайкнувших хотя бы один из первых maxLikes фильмов liked
+     * (у каждого фильма — из первых maxLikers лайкнувших), по возрастанию без повторов.
+     */
+    private int[] usersWithCommonLikes(int userId, int[] liked) {
+        int[][] likedBy = new int[Math.min(liked.length, maxLikes)][];
+        int count = 0;
+        for (int i = 0; i < likedBy.length; i++) {
+            int[] likers = likes.sources(liked[i]);
+            likedBy[i] = likers.length > maxLikers ? Arrays.copyOf(likers, maxLikers) : likers;
+            count += likedBy[i].length;
+        }
+        int[] users = new int[count];
+        int position = 0;
+        for (int[] ids : likedBy) {
+            System.arraycopy(ids, 0, users, position, ids.length);
+            position += ids.length;
+        }
+        Arrays.parallelSort(users);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (users[i] != userId && (distinct == 0 || users[distinct - 1] != users[i])) {
+                users[distinct++] = users[i];
+            }
+        }
+        return Arrays.copyOf(users, distinct);
+    }
+
+    /**
+     * Считает число общих лайков для части кандидатов и оставляет NEIGHBOURS самых похожих.
+     */
+    private class SimilarityTask extends RecursiveTask<TopK> {
+        private final int[] liked;
+        private final int[] candidates;
+        private final int from;
+        private final int to;
+
+        private SimilarityTask(int[] liked, int[] candidates, int from, int to) {
+            this.liked = liked;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                TopK top = new TopK(NEIGHBOURS);
+                for (int i = from; i < to; i++) {
+                    int[] films = likes.targets(candidates[i]);
+                    top.offer(SortedIds.intersect(liked, liked.length, films, films.length).length, candidates[i]);
+                }
+                return top;
+            }
+            int middle = (from + to) >>> 1;
+            SimilarityTask left = new SimilarityTask(liked, candidates, from, middle);
+            left.fork();
+            TopK right = new SimilarityTask(liked, candidates, middle, to).compute();
+            return right.merge(left.join());
+        }
+    }
+}
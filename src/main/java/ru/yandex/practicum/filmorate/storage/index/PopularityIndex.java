@@ -0,0 +1,284 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.cache.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Рейтинг популярности фильмов в памяти. Фильмы упорядочены по ключу (число лайков по убыванию, id),
+ * поэтому лайк или снятие лайка переставляет один фильм за O(log n), а топ читается без обращения к БД.
+ * Кроме общего рейтинга ведутся рейтинги по жанру, по году выпуска и по их сочетанию: фильм входит
+ * в корзину каждого своего жанра и года, так что топ с фильтром читается так же, как общий.
+ * Запись в БД выполняется под разделяемой блокировкой, а перестроение по film_likes — под исключающей,
+ * так что перестроенный рейтинг не теряет и не учитывает дважды лайки, поставленные во время перестроения.
+ */
+@Component
+@Slf4j
+public class PopularityIndex {
+    // корзина — пара (жанр, год), 0 означает любое значение
+    private static final long ALL = bucket(0, 0);
+    private static final long[] ONLY_ALL = {ALL};
+    private static final int[] NO_GENRES = new int[0];
+
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final FilmDao filmDao;
+    private final GenreDao genreDao;
+    private final ConcurrentMap<Integer, Integer> likes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, long[]> filmBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, ConcurrentSkipListSet<Long>> rankings = new ConcurrentHashMap<>();
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private final AtomicLong updatesSinceRebuild = new AtomicLong();
+    private volatile Instant builtAt = Instant.now();
+    private volatile int drift;
+
+    public PopularityIndex(LikeWriteBuffer likeWriteBuffer, FilmDao filmDao, GenreDao genreDao,
+                           MeterRegistry meterRegistry) {
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.filmDao = filmDao;
+        this.genreDao = genreDao;
+        Gauge.builder("filmorate.popularity.index.age", this,
+                        index -> Duration.between(index.builtAt, Instant.now()).toSeconds())
+                .description("Seconds since the index was rebuilt from film_likes")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.popularity.index.updates", updatesSinceRebuild, AtomicLong::get)
+                .description("Like and unlike events applied since the last rebuild")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.popularity.index.drift", this, index -> index.drift)
+                .description("Films whose like count differed from the database at the last check")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            rebuild(likeWriteBuffer.getLikeCounts());
+            drift = 0;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сверяет рейтинг с БД. Первая сверка читает приблизительные счётчики и не останавливает лайки,
+     * поэтому параллельные лайки могут дать ложное расхождение. Найденное расхождение перепроверяется
+     * по согласованным счётчикам под блокировкой, которая останавливает лайки, и только тогда рейтинг
+     * перестраивается. Фильмы, которых больше нет в БД, тоже считаются расхождением: перестроение
+     * убирает их из рейтинга.
+     */
+    @Scheduled(fixedDelayString = "${filmorate.popularity.verify-interval}",
+            initialDelayString = "${filmorate.popularity.verify-interval}")
+    public void verify() {
+        int diverged = diverged(likeWriteBuffer.estimateLikeCounts());
+        if (diverged > 0) {
+            rebuildLock.writeLock().lock();
+            try {
+                Map<Integer, Integer> counts = likeWriteBuffer.getLikeCounts();
+                diverged = diverged(counts);
+                if (diverged > 0) {
+                    log.warn("Popularity index differs from film_likes for {} films, rebuilding", diverged);
+                    rebuild(counts);
+                }
+            } finally {
+                rebuildLock.writeLock().unlock();
+            }
+        }
+        drift = diverged;
+    }
+
+    /**
+     * Добавляет новый фильм или переносит существующий в корзины его текущих жанров и года выпуска.
+     */
+    public void putFilm(int filmId, Collection<Integer> genreIds, Integer releaseYear) {
+        long[] buckets = buckets(genreIds.stream().mapToInt(Integer::intValue).toArray(), releaseYear);
+        rebuildLock.readLock().lock();
+        try {
+            likes.compute(filmId, (id, old) -> {
+                int count = old == null ? 0 : old;
+                long key = key(count, id);
+                for (long bucket : buckets) {
+                    ranking(bucket).add(key);
+                }
+                long[] previous = filmBuckets.put(id, buckets);
+                if (previous != null) {
+                    for (long bucket : previous) {
+                        if (Arrays.binarySearch(buckets, bucket) < 0) {
+                            ranking(bucket).remove(key);
+                        }
+                    }
+                }
+                return count;
+            });
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public void like(int filmId, Runnable write) {
+        apply(filmId, 1, () -> {
+            write.run();
+            return true;
+        });
+    }
+
+    /**
+     * @param write удаление лайка в БД; возвращает false, если лайка не было
+     */
+    public void unlike(int filmId, BooleanSupplier write) {
+        apply(filmId, -1, write);
+    }
+
+    public List<Integer> getTop(int count) {
+        return getTop(count, null, null);
+    }
+
+    /**
+     * Топ фильмов заданного жанра и (или) года выпуска; null — без фильтра.
+     */
+    public List<Integer> getTop(int count, Integer genreId, Integer releaseYear) {
+        Set<Integer> top = new LinkedHashSet<>();
+        ConcurrentSkipListSet<Long> ranking = rankings.get(bucket(
+                genreId == null ? 0 : genreId, releaseYear == null ? 0 : releaseYear));
+        if (ranking == null) {
+            return new ArrayList<>();
+        }
+        for (long key : ranking) {
+            if (top.size() == count) {
+                break;
+            }
+            top.add(filmId(key)); // во время перестановки фильм может кратко встречаться дважды
+        }
+        return new ArrayList<>(top);
+    }
+
+    public int getLikes(int filmId) {
+        return likes.getOrDefault(filmId, 0);
+    }
+
+    /**
+     * Есть ли фильм в индексе: в нём все фильмы из БД и созданные после запуска.
+     */
+    public boolean contains(int filmId) {
+        return likes.containsKey(filmId);
+    }
+
+    private void apply(int filmId, int delta, BooleanSupplier write) {
+        rebuildLock.readLock().lock();
+        try {
+            if (!write.getAsBoolean()) {
+                return;
+            }
+            likes.compute(filmId, (id, old) -> {
+                int oldCount = old == null ? 0 : old;
+                int newCount = Math.max(0, oldCount + delta);
+                for (long bucket : filmBuckets.getOrDefault(id, ONLY_ALL)) {
+                    ConcurrentSkipListSet<Long> ranking = ranking(bucket);
+                    ranking.add(key(newCount, id)); // сначала новая позиция, чтобы фильм не пропадал из топа
+                    if (old != null && oldCount != newCount) {
+                        ranking.remove(key(oldCount, id));
+                    }
+                }
+                return newCount;
+            });
+            updatesSinceRebuild.incrementAndGet();
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void rebuild(Map<Integer, Integer> counts) {
+        Map<Integer, Integer> releaseYears = filmDao.getReleaseYears();
+        Map<Integer, int[]> genreIds = genreDao.getGenreIdsByFilm();
+        likes.clear();
+        filmBuckets.clear();
+        rankings.clear();
+        counts.forEach((filmId, count) -> {
+            long[] buckets = buckets(genreIds.getOrDefault(filmId, NO_GENRES), releaseYears.get(filmId));
+            likes.put(filmId, count);
+            filmBuckets.put(filmId, buckets);
+            for (long bucket : buckets) {
+                ranking(bucket).add(key(count, filmId));
+            }
+        });
+        builtAt = Instant.now();
+        updatesSinceRebuild.set(0);
+        log.info("Popularity index rebuilt for {} films", counts.size());
+    }
+
+    private int diverged(Map<Integer, Integer> counts) {
+        int diverged = 0;
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            if (!Objects.equals(entry.getValue(), likes.get(entry.getKey()))) {
+                diverged++;
+            }
+        }
+        for (Integer filmId : likes.keySet()) {
+            if (!counts.containsKey(filmId)) {
+                diverged++;
+            }
+        }
+        return diverged;
+    }
+
+    private ConcurrentSkipListSet<Long> ranking(long bucket) {
+        return rankings.computeIfAbsent(bucket, b -> new ConcurrentSkipListSet<>());
+    }
+
+    /**
+     * Корзины фильма по возрастанию: общая, по каждому жанру и, если год известен, по году и жанру с годом.
+     */
+    private static long[] buckets(int[] genreIds, Integer releaseYear) {
+        int perYear = releaseYear == null ? 0 : 1;
+        long[] buckets = new long[(1 + genreIds.length) * (1 + perYear)];
+        int count = 0;
+        buckets[count++] = ALL;
+        if (releaseYear != null) {
+            buckets[count++] = bucket(0, releaseYear);
+        }
+        for (int genreId : genreIds) {
+            buckets[count++] = bucket(genreId, 0);
+            if (releaseYear != null) {
+                buckets[count++] = bucket(genreId, releaseYear);
+            }
+        }
+        Arrays.sort(buckets);
+        return buckets;
+    }
+
+    private static long bucket(int genreId, int releaseYear) {
+        return ((long) genreId << 32) | releaseYear;
+    }
+
+    private static long key(int likes, int filmId) {
+        return ((long) (Integer.MAX_VALUE - likes) << 32) | filmId;
+    }
+
+    private static int filmId(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Направленные рёбра между id в памяти: для каждого id — отсортированные массивы прямых и обратных соседей.
+ * Массивы не изменяются на месте: изменение списка одного id атомарно заменяет его массив,
+ * поэтому чтение идёт без блокировок.
+ */
+class SortedEdges {
+    static final int[] NO_IDS = new int[0];
+
+    private final ConcurrentMap<Integer, int[]> targets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, int[]> sources = new ConcurrentHashMap<>();
+
+    boolean add(int from, int to) {
+        if (!insert(targets, from, to)) {
+            return false;
+        }
+        insert(sources, to, from);
+        return true;
+    }
+
+    boolean remove(int from, int to) {
+        if (!remove(targets, from, to)) {
+            return false;
+        }
+        remove(sources, to, from);
+        return true;
+    }
+
+    boolean contains(int from, int to) {
+        return Arrays.binarySearch(targets(from), to) >= 0;
+    }
+
+    /**
+     * Концы рёбер, выходящих из from, по возрастанию. Массив нельзя изменять.
+     */
+    int[] targets(int from) {
+        return targets.getOrDefault(from, NO_IDS);
+    }
+
+    /**
+     * Начала рёбер, входящих в to, по возрастанию. Массив нельзя изменять.
+     */
+    int[] sources(int to) {
+        return sources.getOrDefault(to, NO_IDS);
+    }
+
+    /**
+     * Заменяет рёбра целиком; массивы должны быть отсортированы и далее не изменяться.
+     */
+    void replaceAll(Map<Integer, int[]> targetsByFrom) {
+        Map<Integer, Integer> sourceCounts = new HashMap<>();
+        targetsByFrom.values().forEach(ids -> {
+            for (int to : ids) {
+                sourceCounts.merge(to, 1, Integer::sum);
+            }
+        });
+        Map<Integer, int[]> sourcesByTo = new HashMap<>();
+        sourceCounts.forEach((to, count) -> sourcesByTo.put(to, new int[count]));
+        Map<Integer, Integer> filled = new HashMap<>();
+        targetsByFrom.forEach((from, ids) -> {
+            for (int to : ids) {
+                sourcesByTo.get(to)[filled.merge(to, 1, Integer::sum) - 1] = from;
+            }
+        });
+        sourcesByTo.values().forEach(Arrays::sort);
+
+        targets.clear();
+        sources.clear();
+        targets.putAll(targetsByFrom);
+        sources.putAll(sourcesByTo);
+    }
+
+    private static boolean insert(ConcurrentMap<Integer, int[]> edges, int key, int id) {
+        boolean[] added = new boolean[1];
+        edges.compute(key, (k, ids) -> {
+            int[] current = ids == null ? NO_IDS : ids;
+            int position = Arrays.binarySearch(current, id);
+            if (position >= 0) {
+                return ids;
+            }
+            int insertAt = -position - 1;
+            int[] updated = new int[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insertAt);
+            updated[insertAt] = id;
+            System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            added[0] = true;
+            return updated;
+        });
+        return added[0];
+    }
+
+    private static boolean remove(ConcurrentMap<Integer, int[]> edges, int key, int id) {
+        boolean[] removed = new boolean[1];
+        edges.computeIfPresent(key, (k, ids) -> {
+            int position = Arrays.binarySearch(ids, id);
+            if (position < 0) {
+                return ids;
+            }
+            removed[0] = true;
+            if (ids.length == 1) {
+                return null;
+            }
+            int[] updated = new int[ids.length - 1];
+            System.arraycopy(ids, 0, updated, 0, position);
+            System.arraycopy(ids, position + 1, updated, position, updated.length - position);
+            return updated;
+        });
+        return removed[0];
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными по возрастанию массивами id без повторов.
+ * Учитываются только первые length элементов каждого массива.
+ */
+final class SortedIds {
+    // при таком соотношении длин двоичный поиск выгоднее слияния
+    private static final int GALLOP_RATIO = 16;
+
+    private SortedIds() {
+    }
+
+    /**
+     * Пересечение: слиянием при близких длинах,
+     * иначе каждый элемент короткого массива ищется в длинном экспоненциальным поиском.
+     */
+    static int[] intersect(int[] first, int firstLength, int[] second, int secondLength) {
+        boolean firstIsSmall = firstLength <= secondLength;
+        int[] small = firstIsSmall ? first : second;
+        int smallLength = firstIsSmall ? firstLength : secondLength;
+        int[] large = firstIsSmall ? second : first;
+        int largeLength = firstIsSmall ? secondLength : firstLength;
+        int[] result = new int[smallLength];
+        int count = 0;
+        if ((long) smallLength * GALLOP_RATIO < largeLength) {
+            int from = 0;
+            for (int i = 0; i < smallLength; i++) {
+                int value = small[i];
+                from = gallop(large, largeLength, from, value);
+                if (from == largeLength) {
+                    break;
+                }
+                if (large[from] == value) {
+                    result[count++] = value;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < smallLength && j < largeLength) {
+                if (small[i] < large[j]) {
+                    i++;
+                } else if (small[i] > large[j]) {
+                    j++;
+                } else {
+                    result[count++] = small[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Объединение слиянием.
+     */
+    static int[] union(int[] first, int firstLength, int[] second, int secondLength) {
+        int[] result = new int[firstLength + secondLength];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < firstLength || j < secondLength) {
+            if (j == secondLength || (i < firstLength && first[i] < second[j])) {
+                result[count++] = first[i++];
+            } else if (i == firstLength || second[j] < first[i]) {
+                result[count++] = second[j++];
+            } else {
+                result[count++] = first[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    static boolean contains(int[] ids, int length, int id) {
+        return Arrays.binarySearch(ids, 0, length, id) >= 0;
+    }
+
+    /**
+     * Индекс первого элемента, не меньшего value, начиная с from.
+     */
+    private static int gallop(int[] array, int length, int from, int value) {
+        int bound = 1;
+        while (from + bound < length && array[from + bound] < value) {
+            bound <<= 1;
+        }
+        int low = from + (bound >> 1);
+        int high = Math.min(from + bound, length);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (array[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.PriorityQueue;
+
+/**
+ * Отбор limit лучших id по оценке: куча хранит ключи (оценка, id) так, что больший ключ —
+ * большая оценка, а при равенстве меньший id. Оценки и id должны быть неотрицательными.
+ */
+class TopK {
+    private final int limit;
+    private final PriorityQueue<Long> heap = new PriorityQueue<>();
+
+    TopK(int limit) {
+        this.limit = limit;
+    }
+
+    void offer(int score, int id) {
+        long key = ((long) score << 32) | (Integer.MAX_VALUE - id);
+        if (heap.size() < limit) {
+            heap.add(key);
+        } else if (limit > 0 && key > heap.peek()) {
+            heap.poll();
+            heap.add(key);
+        }
+    }
+
+    TopK merge(TopK other) {
+        for (long key : other.heap) {
+            offer(score(key), id(key));
+        }
+        return this;
+    }
+
+    /**
+     * Ключи от лучшего к худшему; куча после вызова пуста.
+     */
+    long[] drain() {
+        long[] keys = new long[heap.size()];
+        for (int i = keys.length - 1; i >= 0; i--) {
+            keys[i] = heap.poll();
+        }
+        return keys;
+    }
+
+    /**
+     * Id от лучшего к худшему; куча после вызова пуста.
+     */
+    int[] drainIds() {
+        long[] keys = drain();
+        int[] ids = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ids[i] = id(keys[i]);
+        }
+        return ids;
+    }
+
+    static int score(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int id(long key) {
+        return Integer.MAX_VALUE - (int) key;
+    }
+}
@@ -18,6 +18,9 @@ CREATE TABLE IF NOT EXISTS friendship (
         PRIMARY KEY (user_id, friend_user_id)
 );
 
+-- Обратные связи дружбы: кто добавил пользователя в друзья
+CREATE INDEX IF NOT EXISTS friendship_friend_user_idx ON friendship (friend_user_id);
+
 -- Таблица с рейтингами фильмов
 CREATE TABLE IF NOT EXISTS mpa (
         mpa_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -32,10 +35,17 @@ CREATE TABLE IF NOT EXISTS films (
         duration INTEGER CHECK (duration > 0),
         releaseDate DATE,
         mpa_id INTEGER NOT NULL,
+        like_count INTEGER NOT NULL DEFAULT 0, -- число лайков, поддерживается вместе с film_likes
         FOREIGN  KEY (mpa_id) REFERENCES mpa(mpa_id),
         CONSTRAINT exist_film_name UNIQUE (name)
 );
 
+-- Индекс для выборки популярных фильмов
+CREATE INDEX IF NOT EXISTS films_like_count_idx ON films (like_count DESC, id);
+
+-- Фильмы с заданным рейтингом MPA
+CREATE INDEX IF NOT EXISTS films_mpa_idx ON films (mpa_id);
+
 -- Таблица со всеми жанрами
 CREATE TABLE IF NOT EXISTS genres (
         genre_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -49,9 +59,15 @@ CREATE TABLE IF NOT EXISTS film_genres (
         PRIMARY KEY(film_id, genre_id)
 );
 
+-- Фильмы заданного жанра
+CREATE INDEX IF NOT EXISTS film_genres_genre_idx ON film_genres (genre_id, film_id);
+
 -- Таблица с лайками пользователей
 CREATE TABLE IF NOT EXISTS film_likes (
         film_id INTEGER REFERENCES films(id) ON delete CASCADE,
         user_id INTEGER REFERENCES users(id) ON delete CASCADE,
         PRIMARY KEY(film_id, user_id)
 );
+
+-- Лайки пользователя, в том числе для каскадного удаления
+CREATE INDEX IF NOT EXISTS film_likes_user_idx ON film_likes (user_id);
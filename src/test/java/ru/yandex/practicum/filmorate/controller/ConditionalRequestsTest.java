@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DBFilmService;
+import ru.yandex.practicum.filmorate.service.DBUserService;
+import ru.yandex.practicum.filmorate.storage.dao.StatementRecorder;
+import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@Import(StatementRecorder.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ConditionalRequestsTest {
+    private final MockMvc mockMvc;
+    private final DBFilmService filmService;
+    private final DBUserService userService;
+    private final GenreDao genreStorage;
+    private final StatementRecorder recorder;
+    private final MeterRegistry meterRegistry;
+
+    @Test
+    void shouldAnswerNotModifiedWithoutStatementsUntilFilmChanges() throws Exception {
+        Film film = filmService.create(film("film"));
+        User user = userService.create(User.builder()
+                .email("user@mail.ru")
+                .login("user")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        String etag = etag("/films/" + film.getId());
+
+        recorder.reset();
+        mockMvc.perform(get("/films/" + film.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertEquals(0, recorder.count());
+
+        filmService.addLike(film.getId(), user.getId());
+        String likedEtag = etag("/films/" + film.getId());
+        assertNotEquals(etag, likedEtag);
+
+        film.setDescription("new description");
+        filmService.update(film);
+        String updatedEtag = etag("/films/" + film.getId());
+        assertNotEquals(likedEtag, updatedEtag);
+
+        filmService.deleteLike(film.getId(), user.getId());
+        mockMvc.perform(get("/films/" + film.getId()).header(HttpHeaders.IF_NONE_MATCH, updatedEtag))
+                .andExpect(status().isOk());
+
+        assertEquals(1.0, meterRegistry.get("filmorate.http.conditional.requests")
+                .tag("resource", "film")
+                .tag("result", "not_modified")
+                .counter()
+                .count());
+    }
+
+    @Test
+    void shouldAnswerNotFoundForUnknownFilmWhateverTheEtag() throws Exception {
+        // у неизменённых фильмов одинаковый ETag, поэтому подошёл бы и ETag существующего фильма
+        String etag = etag("/films/" + filmService.create(film("film")).getId());
+
+        mockMvc.perform(get("/films/9999").header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/films/9999").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldAnswerNotFoundForUnknownReferenceIdWhateverTheEtag() throws Exception {
+        String etag = etag("/genres");
+
+        for (String path : List.of("/genres/999", "/mpa/999")) {
+            mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                    .andExpect(status().isNotFound());
+            mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotFound());
+        }
+        mockMvc.perform(get("/genres/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void shouldChangeReferenceEtagOnlyWhenReferenceDataChanges() throws Exception {
+        String genresEtag = etag("/genres");
+        assertEquals(genresEtag, etag("/mpa/1"));
+
+        filmService.create(film("film"));
+        recorder.reset();
+        mockMvc.perform(get("/genres").header(HttpHeaders.IF_NONE_MATCH, genresEtag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/mpa").header(HttpHeaders.IF_NONE_MATCH, genresEtag))
+                .andExpect(status().isNotModified());
+        assertEquals(0, recorder.count());
+
+        genreStorage.refresh(); // данные справочника не изменились
+        assertEquals(genresEtag, etag("/genres/1"));
+    }
+
+    private String etag(String path) throws Exception {
+        return mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+    }
+
+    private Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("description")
+                .duration(120)
+                .releaseDate(LocalDate.of(2005, 6, 5))
+                .mpa(new Mpa(1, "G"))
+                .genres(new HashSet<>())
+                .build();
+    }
+}
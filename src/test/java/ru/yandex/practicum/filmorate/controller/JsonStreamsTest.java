@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonStreamsTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void shouldContinueReadingNdjsonAfterMalformedLine() {
+        String body = "{\"id\": 1, \"name\": \"G\"}\n" +
+                "{\"id\": 2, \"name\": \n" +
+                "\n" +
+                "{\"id\": 3, \"name\": \"R\"}";
+        Iterator<Mpa> items = JsonStreams.ndjson(objectMapper,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), Mpa.class);
+
+        assertEquals(new Mpa(1, "G"), items.next());
+        assertTrue(items.hasNext());
+        ValidationException e = assertThrows(ValidationException.class, items::next);
+        assertTrue(e.getMessage().startsWith("Malformed NDJSON item"));
+        assertEquals(new Mpa(3, "R"), items.next());
+        assertFalse(items.hasNext());
+    }
+}
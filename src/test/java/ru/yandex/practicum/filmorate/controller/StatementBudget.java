@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Бюджет SQL-запросов эндпоинта для MockMvc: тест падает, если запрос выполнил больше запросов к БД,
+ * чем объявлено. Число берётся из заголовка, который пишет SqlStatementsFilter; тест должен включить
+ * заголовки свойством filmorate.sql.statement-headers.enabled=true.
+ */
+final class StatementBudget {
+    private StatementBudget() {
+    }
+
+    static ResultMatcher atMost(int statements) {
+        return result -> {
+            String header = result.getResponse().getHeader(SqlStatementsFilter.STATEMENTS_HEADER);
+            assertNotNull(header, "Response has no " + SqlStatementsFilter.STATEMENTS_HEADER + " header");
+            int executed = Integer.parseInt(header);
+            assertTrue(executed <= statements, () -> String.format("%s %s executed %d SQL statements, budget is %d",
+                    result.getRequest().getMethod(), result.getRequest().getRequestURI(), executed, statements));
+        };
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DBFilmService;
+import ru.yandex.practicum.filmorate.service.DBUserService;
+import ru.yandex.practicum.filmorate.storage.dao.SqlStatementCounter;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "filmorate.sql.statement-headers.enabled=true")
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class StatementBudgetTest {
+    private static final int FILMS = 30;
+
+    private final MockMvc mockMvc;
+    private final DBFilmService filmService;
+    private final DBUserService userService;
+    private final SqlStatementCounter statementCounter;
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= FILMS; i++) {
+            User user = userService.create(User.builder()
+                    .email("user" + i + "@mail.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+            Film film = filmService.create(Film.builder()
+                    .name("film " + i)
+                    .description("description")
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2000 + i % 5, 6, 5))
+                    .mpa(new Mpa(1, null))
+                    .genres(Set.of(new Genre(1 + i % 6, null), new Genre(1 + (i + 1) % 6, null)))
+                    .build());
+            filmService.addLike(film.getId(), user.getId());
+            if (i > 1) {
+                userService.addFriend(1, user.getId());
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepFilmEndpointsWithinStatementBudget() throws Exception {
+        mockMvc.perform(get("/films/1")).andExpect(status().isOk()).andExpect(StatementBudget.atMost(2));
+        mockMvc.perform(get("/films/1")).andExpect(StatementBudget.atMost(0));
+        mockMvc.perform(get("/films")).andExpect(StatementBudget.atMost(2));
+        mockMvc.perform(get("/films?limit=10")).andExpect(StatementBudget.atMost(2));
+        mockMvc.perform(get("/films/popular?count=" + FILMS)).andExpect(StatementBudget.atMost(2));
+        mockMvc.perform(get("/films/popular?count=5&genreId=2&year=2001")).andExpect(StatementBudget.atMost(2));
+        mockMvc.perform(get("/films/search?query=film&limit=20")).andExpect(StatementBudget.atMost(2));
+        mockMvc.perform(get("/genres")).andExpect(StatementBudget.atMost(0));
+        mockMvc.perform(get("/mpa/1")).andExpect(StatementBudget.atMost(0));
+    }
+
+    @Test
+    void shouldKeepUserEndpointsWithinStatementBudget() throws Exception {
+        mockMvc.perform(get("/users/1")).andExpect(status().isOk()).andExpect(StatementBudget.atMost(1));
+        mockMvc.perform(get("/users/1/friends")).andExpect(StatementBudget.atMost(2));
+        mockMvc.perform(get("/users/1/friends/common/2")).andExpect(StatementBudget.atMost(3));
+        mockMvc.perform(get("/users/2/recommendations")).andExpect(StatementBudget.atMost(3));
+    }
+
+    @Test
+    void shouldReportStatementsOfErrorResponses() throws Exception {
+        mockMvc.perform(get("/films/" + (FILMS + 1)))
+                .andExpect(status().isNotFound())
+                .andExpect(header().exists(SqlStatementsFilter.TIME_HEADER))
+                .andExpect(StatementBudget.atMost(1));
+    }
+
+    @Test
+    void shouldCountRepeatedStatementsByText() {
+        SqlStatementCounter.Statistics statistics = statementCounter.start();
+        try {
+            for (int id = 1; id <= 3; id++) {
+                jdbcTemplate.queryForObject("SELECT name FROM films WHERE id = ?", String.class, id);
+            }
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class);
+        } finally {
+            statementCounter.stop();
+        }
+
+        assertEquals(4, statistics.getStatements());
+        assertEquals(Map.of("SELECT name FROM films WHERE id = ?", 3, "SELECT COUNT(*) FROM films", 1),
+                statistics.getExecutionsBySql());
+        assertNull(statementCounter.current());
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdSetTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void shouldAddAndRemoveIds() {
+        IdSet ids = new IdSet();
+        assertTrue(ids.addId(5));
+        assertFalse(ids.addId(5));
+        assertTrue(ids.addId(0));
+        assertTrue(ids.addId(-3));
+
+        assertTrue(ids.containsId(5));
+        assertTrue(ids.contains(0));
+        assertEquals(3, ids.size());
+        assertArrayEquals(new int[]{-3, 0, 5}, ids.toIntArray());
+
+        assertTrue(ids.removeId(0));
+        assertFalse(ids.removeId(0));
+        assertTrue(ids.remove(5));
+        assertFalse(ids.contains(5));
+        assertEquals(Set.of(-3), ids);
+    }
+
+    @Test
+    void shouldBehaveLikeHashSetOnRandomOperations() {
+        Random random = new Random(42);
+        IdSet ids = new IdSet();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            int id = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), ids.removeId(id));
+            } else {
+                assertEquals(expected.add(id), ids.addId(id));
+            }
+        }
+        assertEquals(expected, ids);
+        assertEquals(expected.hashCode(), ids.hashCode());
+        expected.forEach(id -> assertTrue(ids.containsId(id)));
+    }
+
+    @Test
+    void shouldIntersectSets() {
+        IdSet first = new IdSet(List.of(1, 2, 3, 4, 10));
+        IdSet second = new IdSet(List.of(10, 3, 7));
+
+        assertArrayEquals(new int[]{3, 10}, first.intersect(second));
+        assertArrayEquals(new int[]{3, 10}, second.intersect(first));
+        assertArrayEquals(new int[0], first.intersect(new IdSet()));
+    }
+
+    @Test
+    void shouldSerializeAsJsonArray() throws Exception {
+        User user = User.builder()
+                .email("user@gmail.com")
+                .login("user")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .friends(new IdSet(List.of(3, 1, 2)))
+                .build();
+
+        String json = objectMapper.writeValueAsString(user);
+        assertTrue(json.contains("\"friends\":[1,2,3]"));
+        assertEquals(user, objectMapper.readValue(json, User.class));
+    }
+}
@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.service.InMemoryService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryServiceConcurrencyTest {
+    private static final int THREADS = 32;
+    private static final int USERS_PER_THREAD = 100;
+
+    private InMemoryUserService userService;
+    private InMemoryFilmService filmService;
+
+    @BeforeEach
+    void setUp() {
+        userService = new InMemoryUserService(new InMemoryUserStorage());
+        filmService = new InMemoryFilmService(new InMemoryFilmStorage(), userService);
+    }
+
+    @Test
+    void shouldNotLoseIdsOfConcurrentlyCreatedUsers() throws Exception {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        runConcurrently(thread -> {
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                ids.add(userService.create(user(thread * USERS_PER_THREAD + i)).getId());
+            }
+        });
+
+        int total = THREADS * USERS_PER_THREAD;
+        assertEquals(IntStream.rangeClosed(1, total).boxed().collect(Collectors.toSet()), ids);
+        assertEquals(total, userService.getUsers().size());
+    }
+
+    @Test
+    void shouldNotLoseConcurrentLikes() throws Exception {
+        createUsers(THREADS * USERS_PER_THREAD);
+        Film film = filmService.create(film());
+
+        runConcurrently(thread -> {
+            for (int i = 1; i <= USERS_PER_THREAD; i++) {
+                filmService.addLike(film.getId(), thread * USERS_PER_THREAD + i);
+            }
+        });
+
+        assertEquals(THREADS * USERS_PER_THREAD, filmService.getFilm(film.getId()).getLikes().size());
+    }
+
+    @Test
+    void shouldAcceptOnlyOneOfConcurrentDuplicateLikes() throws Exception {
+        createUsers(1);
+        Film film = filmService.create(film());
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            try {
+                filmService.addLike(film.getId(), 1);
+                accepted.incrementAndGet();
+            } catch (AlreadyExistException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, accepted.get());
+        assertEquals(THREADS - 1, rejected.get());
+        assertEquals(Set.of(1), film.getLikes());
+    }
+
+    @Test
+    void shouldKeepFriendshipSymmetricUnderConcurrentAddAndDelete() throws Exception {
+        createUsers(THREADS + 1);
+
+        runConcurrently(thread -> {
+            int friendId = thread + 2;
+            for (int i = 0; i < 200; i++) {
+                userService.addFriend(1, friendId);
+                userService.deleteFriend(friendId, 1);
+            }
+            userService.addFriend(1, friendId);
+        });
+
+        List<Integer> friendIds = userService.getUserFriends(1).stream()
+                .map(User::getId)
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(IntStream.rangeClosed(2, THREADS + 1).boxed().collect(Collectors.toList()), friendIds);
+        for (int friendId = 2; friendId <= THREADS + 1; friendId++) {
+            assertEquals(Set.of(1), userService.getUser(friendId).getFriends());
+        }
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int threadNumber = thread;
+            futures.add(executor.submit(() -> task.run(threadNumber)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        for (Future<?> future : futures) {
+            future.get(); // пробрасывает исключение, если поток завершился с ошибкой
+        }
+    }
+
+    private void createUsers(int count) {
+        for (int i = 0; i < count; i++) {
+            userService.create(user(i));
+        }
+    }
+
+    private User user(int number) {
+        return new User(null, "user" + number + "@gmail.com", "user" + number, null,
+                LocalDate.of(1990, 1, 1), new IdSet());
+    }
+
+    private Film film() {
+        return new Film(null, "film", "description", 120, LocalDate.of(2005, 6, 5),
+                new Mpa(1, "G"), new HashSet<>(), new IdSet());
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
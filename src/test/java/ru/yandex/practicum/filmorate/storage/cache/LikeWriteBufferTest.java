@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
+import ru.yandex.practicum.filmorate.storage.index.LikeMatrix;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LikeWriteBufferTest {
+    private final FilmLikesDao filmLikesDao = mock(FilmLikesDao.class);
+    private final LikeMatrix likeMatrix = new LikeMatrix(filmLikesDao, 1000, 1000);
+    private LikeWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        when(filmLikesDao.getLikedFilmIdsByUser()).thenReturn(Map.of(11, new int[]{3}));
+        when(filmLikesDao.getLikeCounts()).thenAnswer(invocation -> new HashMap<>(Map.of(1, 0, 2, 0, 3, 1)));
+        likeMatrix.rebuild();
+        buffer = new LikeWriteBuffer(filmLikesDao, likeMatrix, true, 1000, 1000, 3, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void shouldCancelOppositeOperationsBeforeFlush() {
+        buffer.like(1, 10);
+        assertTrue(buffer.unlike(1, 10));
+        assertTrue(buffer.unlike(3, 11));
+        buffer.like(3, 11);
+        assertFalse(buffer.unlike(2, 10));
+        buffer.flush();
+
+        verify(filmLikesDao, never()).writeLikes(any(), any());
+        verify(filmLikesDao, never()).like(any(), any());
+        assertFalse(likeMatrix.isLiked(10, 1));
+        assertTrue(likeMatrix.isLiked(11, 3));
+    }
+
+    @Test
+    void shouldFlushCoalescedOperationsInOneBatch() {
+        buffer.like(1, 10);
+        buffer.like(2, 10);
+        buffer.unlike(3, 11);
+        assertThrows(AlreadyExistException.class, () -> buffer.like(2, 10));
+        assertEquals(Map.of(1, 1, 2, 1, 3, 0), buffer.getLikeCounts());
+        assertEquals(Map.of(1, 1, 2, 1, 3, 0), buffer.estimateLikeCounts());
+        buffer.flush();
+
+        ArgumentCaptor<List<int[]>> likes = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<int[]>> unlikes = ArgumentCaptor.forClass(List.class);
+        verify(filmLikesDao).writeLikes(likes.capture(), unlikes.capture());
+        assertEquals(Set.of(List.of(1, 10), List.of(2, 10)), pairs(likes.getValue()));
+        assertEquals(Set.of(List.of(3, 11)), pairs(unlikes.getValue()));
+
+        buffer.flush();
+        verify(filmLikesDao, times(1)).writeLikes(any(), any());
+    }
+
+    @Test
+    void shouldRetryFailedBatchTogetherWithNewOperations() {
+        doThrow(new DataAccessResourceFailureException("database is down"))
+                .doReturn(1)
+                .when(filmLikesDao).writeLikes(any(), any());
+        buffer.like(1, 10);
+        buffer.like(2, 10);
+        buffer.flush();
+        buffer.unlike(1, 10);
+        buffer.unlike(3, 11);
+        assertEquals(Map.of(1, 0, 2, 1, 3, 0), buffer.getLikeCounts());
+
+        buffer.drain();
+        ArgumentCaptor<List<int[]>> likes = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<int[]>> unlikes = ArgumentCaptor.forClass(List.class);
+        verify(filmLikesDao, times(2)).writeLikes(likes.capture(), unlikes.capture());
+        assertEquals(Set.of(List.of(2, 10)), pairs(likes.getAllValues().get(1)));
+        assertEquals(Set.of(List.of(3, 11)), pairs(unlikes.getAllValues().get(1)));
+    }
+
+    @Test
+    void shouldDropBatchAfterMaxRetries() {
+        doThrow(new DataAccessResourceFailureException("database is down"))
+                .doThrow(new DataAccessResourceFailureException("database is down"))
+                .doThrow(new DataAccessResourceFailureException("database is down"))
+                .doReturn(1)
+                .when(filmLikesDao).writeLikes(any(), any());
+        buffer.like(1, 10);
+        buffer.flush();
+        buffer.flush();
+        buffer.flush();
+        buffer.like(2, 10);
+        buffer.flush();
+
+        ArgumentCaptor<List<int[]>> likes = ArgumentCaptor.forClass(List.class);
+        verify(filmLikesDao, times(4)).writeLikes(likes.capture(), any());
+        assertEquals(Set.of(List.of(2, 10)), pairs(likes.getAllValues().get(3)));
+    }
+
+    @Test
+    void shouldFlushWhenFullAndRejectWhileDatabaseIsDown() {
+        buffer = new LikeWriteBuffer(filmLikesDao, likeMatrix, true, 1000, 2, 3, new SimpleMeterRegistry());
+        buffer.like(1, 10);
+        buffer.like(2, 10);
+        buffer.like(1, 12);
+        verify(filmLikesDao, times(1)).writeLikes(any(), any());
+
+        doThrow(new DataAccessResourceFailureException("database is down"))
+                .when(filmLikesDao).writeLikes(any(), any());
+        buffer.like(2, 12);
+        assertThrows(DataAccessResourceFailureException.class, () -> buffer.like(3, 12));
+        assertFalse(likeMatrix.isLiked(12, 3));
+    }
+
+    @Test
+    void shouldWriteThroughAfterDrain() {
+        buffer.drain();
+        buffer.like(1, 10);
+
+        verify(filmLikesDao).like(1, 10);
+        verify(filmLikesDao, never()).writeLikes(any(), any());
+        assertTrue(likeMatrix.isLiked(10, 1));
+    }
+
+    @Test
+    void shouldRebuildLikeMatrixWithBufferedOperations() {
+        buffer.like(1, 10);
+        buffer.unlike(3, 11);
+        likeMatrix.like(12, 2);
+        buffer.rebuildLikeMatrix();
+
+        assertTrue(likeMatrix.isLiked(10, 1));
+        assertFalse(likeMatrix.isLiked(11, 3));
+        assertFalse(likeMatrix.isLiked(12, 2));
+    }
+
+    @Test
+    void shouldWriteThroughWhenDisabled() {
+        buffer = new LikeWriteBuffer(filmLikesDao, likeMatrix, false, 1000, 1000, 3, new SimpleMeterRegistry());
+        doReturn(true).when(filmLikesDao).unlike(3, 11);
+
+        buffer.like(1, 10);
+        assertTrue(buffer.unlike(3, 11));
+
+        verify(filmLikesDao).like(1, 10);
+        assertTrue(likeMatrix.isLiked(10, 1));
+        assertFalse(likeMatrix.isLiked(11, 3));
+    }
+
+    private Set<List<Integer>> pairs(List<int[]> rows) {
+        return rows.stream()
+                .map(row -> List.of(row[0], row[1]))
+                .collect(Collectors.toSet());
+    }
+}
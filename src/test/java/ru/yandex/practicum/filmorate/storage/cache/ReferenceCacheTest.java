@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReferenceCacheTest {
+    @Test
+    void shouldLimitReloadsOnMisses() {
+        AtomicInteger loads = new AtomicInteger();
+        ReferenceCache<Mpa> cache = new ReferenceCache<>("mpa", () -> {
+            loads.incrementAndGet();
+            return List.of(new Mpa(1, "G"));
+        }, Mpa::getId, new SimpleMeterRegistry());
+
+        assertEquals(Optional.of(new Mpa(1, "G")), cache.get(1));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Optional.empty(), cache.get(9999));
+        }
+
+        // первая загрузка и одна перезагрузка по промаху
+        assertEquals(2, loads.get());
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
@@ -23,10 +24,13 @@ import javax.validation.Validation;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,6 +44,7 @@ class FilmDaoImplTest {
     private final GenreDao genreStorage;
     private final MpaDao mpaStorage;
     private final FilmLikesDao likesStorage;
+    private final JdbcTemplate jdbcTemplate;
     private Film film;
     ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
     private final Validator validator = factory.getValidator();
@@ -108,6 +113,32 @@ class FilmDaoImplTest {
         );
     }
 
+    @Test
+    void shouldStreamFilmsWithGenres() {
+        Film film1 = filmStorage.createFilm(film);
+        Film film2 = filmStorage.createFilm(
+                Film.builder()
+                        .name("some newFilm")
+                        .description("new description some film")
+                        .duration(150)
+                        .releaseDate(LocalDate.of(2001, 3, 8))
+                        .mpa(new Mpa(1, "G"))
+                        .genres(new HashSet<>())
+                        .build()
+        );
+        genreStorage.addGenreInFilm(film2.getId(), 3);
+        genreStorage.addGenreInFilm(film2.getId(), 1);
+
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamFilms(streamed::add);
+
+        assertEquals(List.of(film1.getId(), film2.getId()),
+                streamed.stream().map(Film::getId).collect(Collectors.toList()));
+        assertTrue(streamed.get(0).getGenres().isEmpty());
+        assertEquals(List.of(genreStorage.getGenre(1), genreStorage.getGenre(3)),
+                List.copyOf(streamed.get(1).getGenres()));
+    }
+
     @Test
     void shouldGetFilmById() {
         filmStorage.createFilm(film);
@@ -214,6 +245,46 @@ class FilmDaoImplTest {
         assertNotEquals(topFilms, filmStorage.getTopFilms(2));
     }
 
+    @Test
+    void shouldRepairLikeCounts() {
+        Film film1 = filmStorage.createFilm(film);
+        User user = userStorage.createUser(
+                User.builder()
+                        .email("user1@gmail.com")
+                        .login("alex")
+                        .name("Alex")
+                        .birthday(LocalDate.of(1980, 5, 25))
+                        .build());
+        likesStorage.like(film1.getId(), user.getId());
+        assertEquals(0, likesStorage.repairLikeCounts());
+
+        jdbcTemplate.update("UPDATE films SET like_count = 5");
+        assertEquals(1, likesStorage.repairLikeCounts());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT like_count FROM films WHERE id = ?",
+                Integer.class, film1.getId()));
+    }
+
+    @Test
+    void shouldWriteLikesBatchSkippingDuplicatesAndMissingRows() {
+        Film film1 = filmStorage.createFilm(film);
+        User user = userStorage.createUser(
+                User.builder()
+                        .email("user1@gmail.com")
+                        .login("alex")
+                        .name("Alex")
+                        .birthday(LocalDate.of(1980, 5, 25))
+                        .build());
+        likesStorage.like(film1.getId(), user.getId());
+
+        assertEquals(0, likesStorage.writeLikes(
+                List.of(new int[]{film1.getId(), user.getId()}, new int[]{film1.getId(), user.getId() + 1}),
+                List.of()));
+        assertEquals(1, likesStorage.writeLikes(List.of(), List.of(new int[]{film1.getId(), user.getId()})));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT like_count FROM films WHERE id = ?",
+                Integer.class, film1.getId()));
+        assertEquals(0, likesStorage.repairLikeCounts());
+    }
+
     @Test
     void shouldGetGenreById() {
         assertEquals("Триллер", genreStorage.getGenre(4).getName());
@@ -256,6 +327,29 @@ class FilmDaoImplTest {
         assertEquals(genres, genreStorage.getFilmGenres(film.getId()));
     }
 
+    @Test
+    void shouldGetGenresOfSeveralFilms() {
+        Film film1 = filmStorage.createFilm(film);
+        Film film2 = filmStorage.createFilm(
+                Film.builder()
+                        .name("some newFilm")
+                        .description("new description some film")
+                        .duration(150)
+                        .releaseDate(LocalDate.of(2001, 3, 8))
+                        .mpa(new Mpa(1, "G"))
+                        .genres(new HashSet<>())
+                        .build()
+        );
+        genreStorage.addGenreInFilm(film1.getId(), 6);
+        genreStorage.addGenreInFilm(film1.getId(), 2);
+
+        Map<Integer, Set<Genre>> filmsGenres = genreStorage.getFilmsGenres(List.of(film1.getId(), film2.getId()));
+
+        assertEquals(List.of(genreStorage.getGenre(2), genreStorage.getGenre(6)),
+                List.copyOf(filmsGenres.get(film1.getId())));
+        assertTrue(filmsGenres.get(film2.getId()).isEmpty());
+    }
+
     @Test
     void shouldDeleteGenresFromFilm() {
         filmStorage.createFilm(film);
@@ -272,4 +366,32 @@ class FilmDaoImplTest {
                 .getGenres()
                 .isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldGetLikedFilmIdsByUser() {
+        Film film1 = filmStorage.createFilm(film);
+        Film film2 = filmStorage.createFilm(
+                Film.builder()
+                        .name("other film")
+                        .description("description other film")
+                        .duration(90)
+                        .releaseDate(LocalDate.of(2001, 3, 8))
+                        .mpa(new Mpa(1, "G"))
+                        .genres(new HashSet<>())
+                        .build());
+        User user = userStorage.createUser(
+                User.builder()
+                        .email("user1@gmail.com")
+                        .login("alex")
+                        .name("Alex")
+                        .birthday(LocalDate.of(1980, 5, 25))
+                        .build());
+        likesStorage.like(film2.getId(), user.getId());
+        likesStorage.like(film1.getId(), user.getId());
+
+        Map<Integer, int[]> filmIds = likesStorage.getLikedFilmIdsByUser();
+
+        assertEquals(Set.of(user.getId()), filmIds.keySet());
+        assertArrayEquals(new int[]{film1.getId(), film2.getId()}, filmIds.get(user.getId()));
+    }
+}
@@ -0,0 +1,270 @@
+package ru.yandex.practicum.filmorate.storage.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DBFilmService;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.MpaDao;
+import ru.yandex.practicum.filmorate.storage.dao.user.UserDao;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Import(StatementRecorder.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FilmDaoStatementCountTest {
+    private final FilmDao filmStorage;
+    private final GenreDao genreStorage;
+    private final MpaDao mpaStorage;
+    private final DBFilmService filmService;
+    private final UserDao userStorage;
+    private final StatementRecorder recorder;
+    private int filmsCount;
+
+    @Test
+    void shouldNotGrowStatementCountOfGetFilmsWithFilmsCount() {
+        createFilms(1);
+        int statements = recorder.countStatements(filmStorage::getFilms);
+
+        createFilms(20);
+        assertEquals(statements, recorder.countStatements(filmStorage::getFilms));
+    }
+
+    @Test
+    void shouldNotGrowStatementCountOfGetByIdWithGenresCount() {
+        Film film = createFilms(1);
+        int statements = recorder.countStatements(() -> filmStorage.getById(film.getId()));
+
+        for (int genreId = 3; genreId <= 6; genreId++) {
+            genreStorage.addGenreInFilm(film.getId(), genreId);
+        }
+        assertEquals(statements, recorder.countStatements(() -> filmStorage.getById(film.getId())));
+    }
+
+    @Test
+    void shouldGetFilmWithoutSeparateExistenceCheck() {
+        Film film = createFilms(1);
+
+        assertEquals(2, recorder.countStatements(() -> filmService.getFilm(film.getId())));
+        assertEquals(1, recorder.countStatements(() -> assertThrows(NotFoundException.class,
+                () -> filmService.getFilm(film.getId() + 1))));
+    }
+
+    @Test
+    void shouldServeRepeatedFilmReadsFromCacheUntilFilmChanges() {
+        Film film = filmService.create(Film.builder()
+                .name("cached film")
+                .description("description")
+                .duration(120)
+                .releaseDate(LocalDate.of(2005, 6, 5))
+                .mpa(new Mpa(1, null))
+                .genres(Set.of(new Genre(1, null)))
+                .build());
+        filmService.getFilm(film.getId());
+
+        Film cached = filmService.getFilm(film.getId());
+        assertEquals(0, recorder.countStatements(() -> filmService.getFilm(film.getId())));
+        String mpaName = cached.getMpa().getName();
+        String genreName = cached.getGenres().iterator().next().getName();
+        cached.setName("changed by caller");
+        cached.getMpa().setName("changed by caller");
+        cached.getGenres().iterator().next().setName("changed by caller");
+        cached.getGenres().clear();
+        Film reread = filmService.getFilm(film.getId());
+        assertEquals("cached film", reread.getName());
+        assertEquals(mpaName, reread.getMpa().getName());
+        assertEquals(1, reread.getGenres().size());
+        assertEquals(genreName, reread.getGenres().iterator().next().getName());
+
+        film.setDescription("new description");
+        filmService.update(film);
+        assertEquals("new description", filmService.getFilm(film.getId()).getDescription());
+
+        List<Film> top = filmService.getTopFilms(10, null, null);
+        assertEquals(0, recorder.countStatements(() -> assertEquals(top, filmService.getTopFilms(10, null, null))));
+    }
+
+    @Test
+    void shouldNotGrowStatementCountOfGetTopFilmsWithCount() {
+        createFilms(20);
+        int statements = recorder.countStatements(() -> filmStorage.getTopFilms(1));
+
+        assertEquals(statements, recorder.countStatements(() -> filmStorage.getTopFilms(20)));
+    }
+
+    @Test
+    void shouldServeReferenceDataWithoutStatements() {
+        assertEquals(0, recorder.countStatements(() -> {
+            mpaStorage.getMpa(1);
+            mpaStorage.getAllMpa();
+            genreStorage.getGenre(1);
+            genreStorage.getAllGenres();
+        }));
+    }
+
+    @Test
+    void shouldWriteOnlyChangedGenresOnUpdate() {
+        Film film = filmService.create(Film.builder()
+                .name("film with genres")
+                .description("description")
+                .duration(120)
+                .releaseDate(LocalDate.of(2005, 6, 5))
+                .mpa(new Mpa(1, null))
+                .genres(Set.of(new Genre(1, null), new Genre(2, null)))
+                .build());
+
+        recorder.reset();
+        filmService.update(film);
+        assertTrue(recorder.getStatements().stream().noneMatch(this::isGenreWrite));
+
+        film.setGenres(Set.of(new Genre(2, null), new Genre(3, null)));
+        recorder.reset();
+        Film updated = filmService.update(film);
+        assertEquals(2, recorder.getStatements().stream().filter(this::isGenreWrite).count());
+        assertEquals(List.of(genreStorage.getGenre(2), genreStorage.getGenre(3)), List.copyOf(updated.getGenres()));
+        assertEquals(updated.getGenres(), genreStorage.getFilmGenres(film.getId()));
+    }
+
+    @Test
+    void shouldNotGrowStatementCountOfFilmBatchWithSize() {
+        int statements = recorder.countStatements(() -> filmService.createFilms(batchFilms(5).iterator()));
+
+        assertEquals(statements, recorder.countStatements(() -> filmService.createFilms(batchFilms(50).iterator())));
+        assertEquals(55, filmStorage.getFilms().size());
+    }
+
+    @Test
+    void shouldReportPerItemResultsOfFilmBatch() {
+        Film existing = createFilms(1);
+        List<Film> batch = batchFilms(2);
+        batch.add(batchFilm(existing.getName()));
+        batch.add(batchFilm(batch.get(0).getName()));
+        batch.add(batchFilm(""));
+        Film unknownMpa = batchFilm("unknown mpa");
+        unknownMpa.setMpa(new Mpa(99, null));
+        batch.add(unknownMpa);
+        batch.add(batchFilm("x".repeat(51)));
+
+        List<BatchItemResult> results = filmService.createFilms(batch.iterator());
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6),
+                results.stream().map(BatchItemResult::getIndex).collect(Collectors.toList()));
+        assertEquals(batch.get(0), filmStorage.getById(results.get(0).getId()));
+        assertEquals(batch.get(1), filmStorage.getById(results.get(1).getId()));
+        assertEquals(String.format("Film with name '%s' already exists", existing.getName()),
+                results.get(2).getError());
+        assertEquals(String.format("Film with name '%s' is repeated in the batch", batch.get(0).getName()),
+                results.get(3).getError());
+        assertEquals("Film name must be completed", results.get(4).getError());
+        assertEquals("MPA with ID = 99 does not exist", results.get(5).getError());
+        assertNull(results.get(6).getId());
+        assertNotNull(results.get(6).getError());
+        assertEquals(3, filmStorage.getFilms().size());
+    }
+
+    @Test
+    void shouldServeFilteredTopFilmsFromIndexInDatabaseOrder() {
+        List<Film> films = batchFilms(30);
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setReleaseDate(LocalDate.of(2005 + i % 3, 6, 5));
+        }
+        filmService.createFilms(films.iterator());
+        for (int i = 1; i <= 5; i++) {
+            User user = userStorage.createUser(User.builder()
+                    .email("user" + i + "@mail.ru")
+                    .login("login" + i)
+                    .name("name" + i)
+                    .birthday(LocalDate.of(1980, 5, 25))
+                    .build());
+            for (int filmId = i; filmId <= 30; filmId += i + 1) {
+                filmService.addLike(filmId, user.getId());
+            }
+        }
+        filmService.deleteLike(1, 1);
+
+        List<Film> ranked = filmStorage.getTopFilms(films.size());
+        int statements = recorder.countStatements(() -> filmService.getTopFilms(5, null, null));
+        for (Integer genreId : Arrays.asList(null, 1, 3)) {
+            for (Integer year : Arrays.asList(null, 2005, 2007)) {
+                List<Film> expected = ranked.stream()
+                        .filter(film -> genreId == null
+                                || film.getGenres().stream().anyMatch(genre -> genreId.equals(genre.getId())))
+                        .filter(film -> year == null || film.getReleaseDate().getYear() == year)
+                        .limit(5)
+                        .collect(Collectors.toList());
+                assertEquals(expected, filmService.getTopFilms(5, genreId, year));
+                assertTrue(recorder.countStatements(() -> filmService.getTopFilms(5, genreId, year)) <= statements);
+            }
+        }
+    }
+
+    private List<Film> batchFilms(int count) {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Film film = batchFilm("film " + ++filmsCount);
+            film.setGenres(Set.of(new Genre(1 + i % 6, null), new Genre(1 + (i + 1) % 6, null)));
+            films.add(film);
+        }
+        return films;
+    }
+
+    private Film batchFilm(String name) {
+        return Film.builder()
+                .name(name)
+                .description("description")
+                .duration(120)
+                .releaseDate(LocalDate.of(2005, 6, 5))
+                .mpa(new Mpa(1, null))
+                .genres(new HashSet<>())
+                .build();
+    }
+
+    private boolean isGenreWrite(String sql) {
+        return sql.startsWith("INSERT INTO film_genres") || sql.startsWith("DELETE FROM film_genres");
+    }
+
+    private Film createFilms(int count) {
+        Film film = null;
+        for (int i = 0; i < count; i++) {
+            film = filmStorage.createFilm(
+                    Film.builder()
+                            .name("film " + ++filmsCount)
+                            .description("description")
+                            .duration(120)
+                            .releaseDate(LocalDate.of(2005, 6, 5))
+                            .mpa(new Mpa(1, "G"))
+                            .genres(new HashSet<>())
+                            .build()
+            );
+            genreStorage.addGenreInFilm(film.getId(), 1 + i % 6);
+            genreStorage.addGenreInFilm(film.getId(), 1 + (i + 1) % 6);
+        }
+        return film;
+    }
+}
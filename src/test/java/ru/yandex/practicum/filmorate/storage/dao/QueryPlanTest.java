@@ -0,0 +1,209 @@
+package ru.yandex.practicum.filmorate.storage.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.MpaDao;
+import ru.yandex.practicum.filmorate.storage.dao.user.FriendDao;
+import ru.yandex.practicum.filmorate.storage.dao.user.UserDao;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Выполняет EXPLAIN для каждого запроса DAO и проверяет, что запросы по ключу
+ * не читают большие таблицы целиком. Методы, которые читают таблицу целиком намеренно
+ * (выгрузка, построение индексов в памяти), перечислены отдельно и не проверяются.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Import(StatementRecorder.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class QueryPlanTest {
+    private static final int ROWS = 300;
+    private static final Pattern TABLE_SCAN = Pattern.compile(
+            "PUBLIC\\.(FILMS|USERS|FILM_LIKES|FILM_GENRES|FRIENDSHIP)\\.tableScan\\s*\\*/");
+
+    // Методы DAO, которые читают таблицу целиком намеренно или обращаются только к справочникам
+    private static final Map<Class<?>, Set<String>> FULL_READS = Map.of(
+            FilmDao.class, Set.of("getFilms", "streamFilms", "getReleaseYears"),
+            UserDao.class, Set.of("getUsers", "streamUsers"),
+            FriendDao.class, Set.of("getFriendIdsByUser"),
+            FilmLikesDao.class, Set.of("getLikeCounts", "getLikedFilmIdsByUser", "repairLikeCounts"),
+            GenreDao.class, Set.of("getAllGenres", "getGenreIdsByFilm", "refresh", "getVersion"),
+            MpaDao.class, Set.of("getAllMpa", "refresh", "getVersion")
+    );
+
+    // Методы DAO, которые вызывает runKeyedStatements()
+    private static final Map<Class<?>, Set<String>> KEYED = Map.of(
+            FilmDao.class, Set.of("createFilm", "createFilms", "updateFilm", "getById", "findById", "getTopFilms",
+                    "getFilmsByIds", "findFilmGenreIds", "getFilmsPage", "checkFilmExist", "findIdsByNames"),
+            UserDao.class, Set.of("createUser", "createUsers", "updateUser", "getById", "findById", "getUsersByIds",
+                    "getUsersPage", "checkUserExist", "findByEmailsOrLogins"),
+            FriendDao.class, Set.of("addFriend", "deleteFriend", "getCommonFriends", "getAllFriends"),
+            FilmLikesDao.class, Set.of("like", "unlike", "writeLikes"),
+            GenreDao.class, Set.of("addGenreInFilm", "addFilmGenres", "addFilmsGenres", "deleteFilmGenres",
+                    "getFilmGenres", "getFilmsGenres", "deleteFilmGenre", "getGenre"),
+            MpaDao.class, Set.of("getMpa")
+    );
+
+    private final FilmDao filmStorage;
+    private final UserDao userStorage;
+    private final FriendDao friendStorage;
+    private final FilmLikesDao likesStorage;
+    private final GenreDao genreStorage;
+    private final MpaDao mpaStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final StatementRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= ROWS; i++) {
+            users.add(user("seed" + i));
+            Film film = film("seed film " + i);
+            film.setReleaseDate(LocalDate.of(1900 + i, 6, 5));
+            films.add(film);
+        }
+        userStorage.createUsers(users);
+        filmStorage.createFilms(films);
+
+        Map<Integer, List<Integer>> filmsGenres = new HashMap<>();
+        for (int id = 1; id <= ROWS; id++) {
+            filmsGenres.put(id, List.of(1 + id % 6));
+            likesStorage.like(id, 1 + id % ROWS);
+            friendStorage.addFriend(id, 1 + id % ROWS);
+        }
+        genreStorage.addFilmsGenres(filmsGenres);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void shouldCoverEveryDaoMethod() {
+        for (Class<?> dao : KEYED.keySet()) {
+            Set<String> methods = Arrays.stream(dao.getMethods())
+                    .map(Method::getName)
+                    .collect(Collectors.toCollection(TreeSet::new));
+            Set<String> covered = new HashSet<>(KEYED.get(dao));
+            covered.addAll(FULL_READS.get(dao));
+            methods.removeAll(covered);
+            assertEquals(Set.of(), methods, "Methods of " + dao.getSimpleName() + " without a query plan check");
+        }
+    }
+
+    @Test
+    void shouldNotScanLargeTablesInKeyedStatements() {
+        recorder.reset();
+        runKeyedStatements();
+        List<StatementRecorder.Execution> executions = recorder.getExecutions();
+
+        Map<String, String> scans = new LinkedHashMap<>();
+        for (StatementRecorder.Execution execution : executions) {
+            String sql = execution.getSql().trim();
+            if (scans.containsKey(sql) || !isExplainable(sql)) {
+                continue;
+            }
+            String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class,
+                    execution.getParameters().toArray()));
+            if (TABLE_SCAN.matcher(plan).find()) {
+                scans.put(sql, plan);
+            }
+        }
+        assertTrue(scans.isEmpty(), () -> "Statements scanning large tables:\n" + String.join("\n\n", scans.values()));
+    }
+
+    private void runKeyedStatements() {
+        Film film = filmStorage.createFilm(film("keyed film"));
+        filmStorage.createFilms(new ArrayList<>(List.of(film("batch film"))));
+        filmStorage.updateFilm(film);
+        filmStorage.getById(1);
+        filmStorage.findById(2);
+        filmStorage.getTopFilms(10);
+        filmStorage.getFilmsByIds(List.of(3, 4, 5));
+        filmStorage.findFilmGenreIds(6);
+        filmStorage.getFilmsPage(100, 20);
+        filmStorage.checkFilmExist(7);
+        filmStorage.findIdsByNames(List.of("seed film 8", "seed film 9"));
+
+        User user = userStorage.createUser(user("keyed"));
+        userStorage.createUsers(new ArrayList<>(List.of(user("batch"))));
+        userStorage.updateUser(user);
+        userStorage.getById(1);
+        userStorage.findById(2);
+        userStorage.getUsersByIds(List.of(3, 4, 5));
+        userStorage.getUsersPage(100, 20);
+        userStorage.checkUserExist(6);
+        userStorage.findByEmailsOrLogins(List.of("seed7@mail.ru"), List.of("seed8"));
+
+        friendStorage.addFriend(10, 20);
+        friendStorage.deleteFriend(10, 20);
+        friendStorage.getCommonFriends(10, 11);
+        friendStorage.getAllFriends(12);
+
+        likesStorage.like(13, 16);
+        likesStorage.unlike(13, 16);
+        likesStorage.writeLikes(List.of(new int[]{13, 15}), List.of(new int[]{1, 2}));
+
+        genreStorage.addGenreInFilm(film.getId(), 1);
+        genreStorage.addFilmGenres(film.getId(), List.of(2, 3));
+        genreStorage.addFilmsGenres(Map.of(15, List.of(6)));
+        genreStorage.deleteFilmGenres(film.getId(), List.of(3));
+        genreStorage.getFilmGenres(film.getId());
+        genreStorage.getFilmsGenres(List.of(15, 16));
+        genreStorage.deleteFilmGenre(film.getId());
+        genreStorage.getGenre(1);
+        mpaStorage.getMpa(1);
+    }
+
+    private boolean isExplainable(String sql) {
+        String verb = sql.split("\\s+", 2)[0].toUpperCase();
+        return Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "MERGE").contains(verb);
+    }
+
+    private User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("description")
+                .duration(120)
+                .releaseDate(LocalDate.of(2005, 6, 5))
+                .mpa(new Mpa(1, null))
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.storage.dao;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Запоминает SQL и параметры каждого выполненного запроса; запросы получает от SqlStatementCounter,
+ * который уже оборачивает DataSource. Подключается к тесту через {@code @Import(StatementRecorder.class)}.
+ */
+public class StatementRecorder implements SqlStatementCounter.Listener {
+    private final List<Execution> executions = new CopyOnWriteArrayList<>();
+
+    public StatementRecorder(SqlStatementCounter statementCounter) {
+        statementCounter.addListener(this);
+    }
+
+    @Override
+    public void executed(String sql, List<Object> parameters) {
+        executions.add(new Execution(sql, parameters));
+    }
+
+    public void reset() {
+        executions.clear();
+    }
+
+    public int count() {
+        return executions.size();
+    }
+
+    public List<String> getStatements() {
+        return executions.stream().map(Execution::getSql).collect(Collectors.toList());
+    }
+
+    public List<Execution> getExecutions() {
+        return new ArrayList<>(executions);
+    }
+
+    public int countStatements(Runnable action) {
+        reset();
+        action.run();
+        return count();
+    }
+
+    @Value
+    public static class Execution {
+        String sql;
+        List<Object> parameters;
+    }
+}
@@ -8,7 +8,10 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DBUserService;
 import ru.yandex.practicum.filmorate.storage.dao.user.UserDao;
 import ru.yandex.practicum.filmorate.storage.dao.user.impl.FriendDaoImpl;
 
@@ -17,9 +20,12 @@ import javax.validation.Validation;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,6 +36,7 @@ import static org.junit.jupiter.api.Assertions.*;
 class UserDaoImplTest {
     private final UserDao userStorage;
     private final FriendDaoImpl friendStorage;
+    private final DBUserService userService;
     private User user;
     ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
     private final Validator validator = factory.getValidator();
@@ -96,12 +103,105 @@ class UserDaoImplTest {
         );
     }
 
+    @Test
+    void shouldGetUsersPageAfterCursor() {
+        for (int i = 1; i <= 5; i++) {
+            userStorage.createUser(User.builder()
+                    .email("user" + i + "@gmail.com")
+                    .login("user" + i)
+                    .name("userName")
+                    .birthday(LocalDate.of(1995, 7, 25))
+                    .build()
+            );
+        }
+
+        List<User> firstPage = userStorage.getUsersPage(0, 2);
+        assertEquals(List.of(1, 2), firstPage.stream().map(User::getId).collect(Collectors.toList()));
+        List<User> lastPage = userStorage.getUsersPage(4, 2);
+        assertEquals(List.of(5), lastPage.stream().map(User::getId).collect(Collectors.toList()));
+    }
+
     @Test
     void shouldGetUserById() {
         userStorage.createUser(user);
         assertEquals(user, userStorage.getById(1));
     }
 
+    @Test
+    void shouldFindUserByIdOrReturnEmpty() {
+        userStorage.createUser(user);
+        assertEquals(Optional.of(user), userStorage.findById(1));
+        assertEquals(Optional.empty(), userStorage.findById(2));
+    }
+
+    @Test
+    void shouldCreateUsersInBatchAndFindThemByEmailOrLogin() {
+        User second = User.builder()
+                .email("user2@gmail.com")
+                .login("user2")
+                .name("user2 name")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+        userStorage.createUsers(List.of(user, second));
+
+        assertEquals(user, userStorage.getById(user.getId()));
+        assertEquals(second, userStorage.getById(second.getId()));
+        assertEquals(List.of(user, second), userStorage.findByEmailsOrLogins(List.of("user1@gmail.com"), List.of("user2")));
+        assertEquals(List.of(second), userStorage.findByEmailsOrLogins(List.of(), List.of("user2")));
+    }
+
+    @Test
+    void shouldReportPerItemResultsOfUserBatch() {
+        userStorage.createUser(user);
+        List<User> batch = List.of(
+                User.builder().email("new@gmail.com").login("new").birthday(LocalDate.of(1990, 1, 1)).build(),
+                User.builder().email("user1@gmail.com").login("other").birthday(LocalDate.of(1990, 1, 1)).build(),
+                User.builder().email("other@gmail.com").login("user1").birthday(LocalDate.of(1990, 1, 1)).build(),
+                User.builder().email("new@gmail.com").login("new2").birthday(LocalDate.of(1990, 1, 1)).build(),
+                User.builder().email("wrong email").login("bad").birthday(LocalDate.of(1990, 1, 1)).build()
+        );
+
+        List<BatchItemResult> results = userService.createUsers(batch.iterator());
+
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(BatchItemResult::getIndex).collect(Collectors.toList()));
+        assertEquals("new", userStorage.getById(results.get(0).getId()).getName());
+        assertEquals("User with email 'user1@gmail.com' already exists", results.get(1).getError());
+        assertEquals("User with login 'user1' already exists", results.get(2).getError());
+        assertEquals("User with email 'new@gmail.com' is repeated in the batch", results.get(3).getError());
+        assertEquals("Invalid email format", results.get(4).getError());
+        assertEquals(2, userStorage.getUsers().size());
+    }
+
+    @Test
+    void shouldReportUnreadableItemAndContinueUserBatch() {
+        List<User> users = List.of(user,
+                User.builder().email("user2@gmail.com").login("user2").birthday(LocalDate.of(1990, 1, 1)).build());
+        Iterator<User> batch = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < 3;
+            }
+
+            @Override
+            public User next() {
+                if (next++ == 1) {
+                    throw new ValidationException("Malformed NDJSON item: unexpected end-of-input");
+                }
+                return users.get(next == 1 ? 0 : 1);
+            }
+        };
+
+        List<BatchItemResult> results = userService.createUsers(batch);
+
+        assertEquals(List.of(0, 1, 2), results.stream().map(BatchItemResult::getIndex).collect(Collectors.toList()));
+        assertNotNull(results.get(0).getId());
+        assertEquals("Malformed NDJSON item: unexpected end-of-input", results.get(1).getError());
+        assertNotNull(results.get(2).getId());
+        assertEquals(2, userStorage.getUsers().size());
+    }
+
     @Test
     void shouldThrowsInvalidCheckUserExist() {
         userStorage.createUser(user);
@@ -192,6 +292,47 @@ class UserDaoImplTest {
         assertEquals(List.of(newUser1), friendStorage.getCommonFriends(user.getId(), newUser2.getId()));
     }
 
+    @Test
+    void shouldGetFriendIdsByUserAndUsersByIds() {
+        for (int i = 1; i <= 4; i++) {
+            userStorage.createUser(User.builder()
+                    .email("user" + i + "@mail.ru")
+                    .login("login" + i)
+                    .name("name" + i)
+                    .birthday(LocalDate.of(1980, 5, 25))
+                    .build());
+        }
+        friendStorage.addFriend(1, 4);
+        friendStorage.addFriend(1, 2);
+        friendStorage.addFriend(3, 1);
+
+        Map<Integer, int[]> friendIds = friendStorage.getFriendIdsByUser();
+        assertEquals(Set.of(1, 3), friendIds.keySet());
+        assertArrayEquals(new int[]{2, 4}, friendIds.get(1));
+        assertArrayEquals(new int[]{1}, friendIds.get(3));
+        assertEquals(List.of(4, 2), userStorage.getUsersByIds(List.of(4, 99, 2)).stream()
+                .map(User::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void shouldGetCommonFriendsFromFriendIndex() {
+        for (int i = 1; i <= 4; i++) {
+            userService.create(User.builder()
+                    .email("user" + i + "@mail.ru")
+                    .login("login" + i)
+                    .birthday(LocalDate.of(1980, 5, 25))
+                    .build());
+        }
+        userService.addFriend(1, 3);
+        userService.addFriend(1, 4);
+        userService.addFriend(2, 4);
+        userService.addFriend(2, 3);
+        userService.deleteFriend(2, 3);
+
+        assertEquals(List.of(userStorage.getById(4)), userService.getCommonFriends(1, 2));
+    }
+
     @Test
     void shouldGetAllFriends() {
         userStorage.createUser(user);
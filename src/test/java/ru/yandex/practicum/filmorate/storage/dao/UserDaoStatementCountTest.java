@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DBUserService;
+import ru.yandex.practicum.filmorate.storage.dao.user.UserDao;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Import(StatementRecorder.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class UserDaoStatementCountTest {
+    private static final int FRIENDS = 200;
+
+    private final UserDao userStorage;
+    private final DBUserService userService;
+    private final StatementRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= FRIENDS + 2; i++) {
+            users.add(User.builder()
+                    .email("user" + i + "@mail.ru")
+                    .login("login" + i)
+                    .name("name" + i)
+                    .birthday(LocalDate.of(1980, 5, 25))
+                    .build());
+        }
+        userStorage.createUsers(users);
+    }
+
+    @Test
+    void shouldNotGrowStatementCountOfFriendWritesWithFriendsCount() {
+        assertEquals(1, recorder.countStatements(() -> userService.addFriend(1, 2)));
+        assertEquals(1, recorder.countStatements(() -> userService.deleteFriend(1, 2)));
+
+        for (int friendId = 3; friendId <= FRIENDS + 2; friendId++) {
+            userService.addFriend(1, friendId);
+        }
+        assertEquals(1, recorder.countStatements(() -> userService.addFriend(1, 2)));
+        assertEquals(1, recorder.countStatements(() -> userService.deleteFriend(1, 2)));
+        assertEquals(FRIENDS, userService.getUserFriends(1).size());
+    }
+
+    @Test
+    void shouldRejectRepeatedAndUnknownFriendship() {
+        userService.addFriend(1, 2);
+
+        assertThrows(AlreadyExistException.class, () -> userService.addFriend(1, 2));
+        NotFoundException unknownFriend = assertThrows(NotFoundException.class, () -> userService.addFriend(1, -1));
+        assertEquals("User ID = -1 does not exist", unknownFriend.getMessage());
+        NotFoundException unknownUser = assertThrows(NotFoundException.class, () -> userService.deleteFriend(-1, 2));
+        assertEquals("User ID = -1 does not exist", unknownUser.getMessage());
+        NotFoundException notFriend = assertThrows(NotFoundException.class, () -> userService.deleteFriend(2, 1));
+        assertEquals("Deleted user with ID = 1 was NOT FOUND in friends", notFriend.getMessage());
+        assertEquals(List.of(userStorage.getById(2)), userService.getUserFriends(1));
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class FilmSearchIndexTest {
+    private final FilmDao filmDao = mock(FilmDao.class);
+    private final FilmSearchIndex index = new FilmSearchIndex(filmDao);
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            Consumer<Film> consumer = invocation.getArgument(0);
+            consumer.accept(film(1, "Терминатор", "Киборг из будущего"));
+            consumer.accept(film(2, "Терминатор 2", "Судный день"));
+            consumer.accept(film(3, "Матрица", "Хакер узнаёт правду о мире, где правят машины"));
+            consumer.accept(film(4, "Чужой", "Экипаж встречает терминатора-ксеноморфа"));
+            return null;
+        }).when(filmDao).streamFilms(any());
+        index.rebuild();
+    }
+
+    @Test
+    void shouldSplitTextIntoNormalizedWords() {
+        assertEquals(List.of("узнает", "правду", "r2", "d2"), FilmSearchIndex.words("Узнаёт ПРАВДУ, R2-D2!"));
+    }
+
+    @Test
+    void shouldRankNameMatchesOverDescriptionAndSubstringMatches() {
+        assertArrayEquals(new int[]{1, 2, 4}, index.search("терминатор", 0, 10));
+        assertArrayEquals(new int[]{3}, index.search("узнает правду", 0, 10));
+        assertArrayEquals(new int[]{3}, index.search("маши", 0, 10));
+        assertArrayEquals(new int[]{2}, index.search("терминатор 2", 0, 10));
+        assertArrayEquals(new int[0], index.search("терминатор матрица", 0, 10));
+        assertArrayEquals(new int[0], index.search(" ,. ", 0, 10));
+    }
+
+    @Test
+    void shouldPaginateRankedResults() {
+        assertArrayEquals(new int[]{1, 2}, index.search("терминатор", 0, 2));
+        assertArrayEquals(new int[]{4}, index.search("терминатор", 2, 2));
+        assertArrayEquals(new int[0], index.search("терминатор", 3, 2));
+    }
+
+    @Test
+    void shouldReplaceDocumentOfUpdatedFilm() {
+        index.putFilm(film(1, "Робокоп", "Полицейский из будущего"));
+        index.putFilm(film(5, "Терминатор 3", "Восстание машин"));
+
+        assertArrayEquals(new int[]{2, 5, 4}, index.search("терминатор", 0, 10));
+        assertArrayEquals(new int[]{1}, index.search("робокоп", 0, 10));
+        assertArrayEquals(new int[]{5, 3}, index.search("машин", 0, 10));
+    }
+
+    @Test
+    void shouldNotMatchWordWhoseTrigramsComeFromDifferentWords() {
+        index.putFilm(film(5, "Звезда", "Стар и арт"));
+        index.putFilm(film(6, "Рестарт", null));
+
+        assertArrayEquals(new int[]{6}, index.search("тарт", 0, 10));
+        assertArrayEquals(new int[]{5, 6}, index.search("тар", 0, 10));
+    }
+
+    @Test
+    void shouldFindSameFilmsAfterPurgingReplacedDocuments() {
+        for (int i = 0; i < 5000; i++) {
+            index.putFilm(film(3, "Матрица " + i, "Хакер узнаёт правду"));
+        }
+
+        assertArrayEquals(new int[]{3}, index.search("матрица 4999", 0, 10));
+        assertArrayEquals(new int[0], index.search("матрица 4998", 0, 10));
+        assertArrayEquals(new int[]{3}, index.search("хакер", 0, 10));
+    }
+
+    private Film film(int id, String name, String description) {
+        return Film.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FriendGraphTest {
+    private final FriendGraph graph = new FriendGraph();
+
+    @Test
+    void shouldKeepFriendsSortedAndDirected() {
+        assertTrue(graph.addFriend(1, 5));
+        assertTrue(graph.addFriend(1, 2));
+        assertFalse(graph.addFriend(1, 2));
+        assertTrue(graph.addFriend(1, 9));
+
+        assertArrayEquals(new int[]{2, 5, 9}, graph.getFriends(1));
+        assertArrayEquals(new int[0], graph.getFriends(2));
+        assertTrue(graph.isFriend(1, 5));
+        assertFalse(graph.isFriend(5, 1));
+
+        assertTrue(graph.removeFriend(1, 5));
+        assertFalse(graph.removeFriend(1, 5));
+        assertArrayEquals(new int[]{2, 9}, graph.getFriends(1));
+    }
+
+    @Test
+    void shouldKeepFollowersInSyncWithFriends() {
+        graph.replaceAll(Map.of(1, new int[]{3, 4}, 2, new int[]{4}));
+        graph.addFriend(5, 4);
+        graph.removeFriend(1, 4);
+
+        assertArrayEquals(new int[]{2, 5}, graph.followersOf(4));
+        assertArrayEquals(new int[]{1}, graph.followersOf(3));
+        assertArrayEquals(new int[0], graph.followersOf(1));
+    }
+
+    @Test
+    void shouldFindCommonFriends() {
+        graph.replaceAll(Map.of(1, new int[]{2, 3, 4}, 2, new int[]{3, 4, 5}));
+        graph.addFriend(2, 1);
+
+        assertArrayEquals(new int[]{3, 4}, graph.getCommonFriends(1, 2));
+        assertArrayEquals(new int[0], graph.getCommonFriends(1, 3));
+    }
+
+    @Test
+    void shouldIntersectByMergeAndByGalloping() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            int[] small = randomSortedIds(random, 1 + random.nextInt(50), 10_000);
+            int[] large = randomSortedIds(random, round % 2 == 0 ? 60 : 5_000, 10_000);
+
+            TreeSet<Integer> expected = new TreeSet<>();
+            IntStream.of(small).forEach(expected::add);
+            expected.retainAll(IntStream.of(large).boxed().collect(Collectors.toSet()));
+            int[] expectedIds = expected.stream().mapToInt(Integer::intValue).toArray();
+
+            assertArrayEquals(expectedIds, FriendGraph.intersect(small, large));
+            assertArrayEquals(expectedIds, FriendGraph.intersect(large, small));
+        }
+    }
+
+    @Test
+    void shouldNotLoseConcurrentUpdates() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        for (int thread = 0; thread < 32; thread++) {
+            int offset = thread * 1000;
+            executor.submit(() -> {
+                for (int i = 1; i <= 1000; i++) {
+                    graph.addFriend(1, offset + i);
+                    graph.addFriend(offset + i, 1);
+                }
+                for (int i = 1; i <= 1000; i += 2) {
+                    graph.removeFriend(1, offset + i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertArrayEquals(IntStream.rangeClosed(1, 32 * 1000).filter(id -> id % 2 == 0).toArray(),
+                graph.getFriends(1));
+        assertEquals(1, graph.getFriends(32 * 1000).length);
+    }
+
+    private int[] randomSortedIds(Random random, int count, int bound) {
+        return random.ints(count, 1, bound).distinct().sorted().toArray();
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.dao.user.FriendDao;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FriendIndexTest {
+    private final FriendDao friendDao = mock(FriendDao.class);
+    private FriendIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(friendDao.getFriendIdsByUser()).thenReturn(Map.of(1, new int[]{2}));
+        index = new FriendIndex(friendDao);
+        index.rebuild();
+    }
+
+    @Test
+    void shouldChangeGraphOnlyWhenDatabaseWriteSucceeds() {
+        assertFalse(index.addFriend(1, 3, () -> false));
+        assertFalse(index.isFriend(1, 3));
+        assertTrue(index.addFriend(1, 3, () -> true));
+        assertTrue(index.isFriend(1, 3));
+
+        assertFalse(index.removeFriend(1, 2, () -> false));
+        assertTrue(index.isFriend(1, 2));
+        assertTrue(index.removeFriend(1, 2, () -> true));
+        assertFalse(index.isFriend(1, 2));
+    }
+
+    @Test
+    void shouldReplaceGraphWithDatabaseStateOnRebuild() {
+        index.addFriend(1, 3);
+        when(friendDao.getFriendIdsByUser()).thenReturn(Map.of(1, new int[]{4}, 4, new int[]{1}));
+
+        index.rebuild();
+
+        assertArrayEquals(new int[]{4}, index.getFriends(1));
+        assertArrayEquals(new int[]{1}, index.getFriends(4));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FriendSuggestionsTest {
+    private final FriendGraph graph = new FriendGraph();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldRankNonFriendsByMutualFriends() {
+        graph.replaceAll(Map.of(
+                1, new int[]{10, 11, 12},
+                2, new int[]{10, 11, 12},
+                3, new int[]{10, 11},
+                4, new int[]{11},
+                5, new int[]{12},
+                10, new int[]{1}));
+        FriendSuggestions suggestions = new FriendSuggestions(graph, meterRegistry, 1000, 1000, false, 1000);
+
+        assertArrayEquals(new int[]{2, 3, 4, 5}, suggestions.suggest(1, 10));
+        assertArrayEquals(new int[]{2, 3}, suggestions.suggest(1, 2));
+        assertArrayEquals(new int[0], suggestions.suggest(99, 10));
+
+        graph.addFriend(1, 2);
+        assertArrayEquals(new int[]{3, 4, 5}, suggestions.suggest(1, 10));
+    }
+
+    @Test
+    void shouldBoundScannedFollowers() {
+        graph.replaceAll(Map.of(
+                1, new int[]{10},
+                2, new int[]{10},
+                3, new int[]{10},
+                4, new int[]{10}));
+        FriendSuggestions suggestions = new FriendSuggestions(graph, meterRegistry, 1000, 2, false, 1000);
+
+        assertArrayEquals(new int[]{2}, suggestions.suggest(1, 10));
+    }
+
+    @Test
+    void shouldInvalidatePrecomputedSuggestions() {
+        graph.replaceAll(Map.of(
+                1, new int[]{10, 11},
+                2, new int[]{10},
+                3, new int[]{10, 11}));
+        FriendSuggestions suggestions = new FriendSuggestions(graph, meterRegistry, 1000, 1000, true, 2);
+        assertArrayEquals(new int[]{3, 2}, suggestions.suggest(1, 10));
+
+        graph.addFriend(2, 11);
+        suggestions.invalidate(2, 11);
+        graph.addFriend(4, 10);
+        suggestions.invalidate(4, 10);
+        suggestions.precompute();
+        assertArrayEquals(new int[]{2, 3, 4}, suggestions.suggest(1, 10));
+
+        graph.addFriend(5, 10);
+        assertArrayEquals(new int[]{2, 3, 4}, suggestions.suggest(1, 10));
+        suggestions.invalidate(5, 10);
+        assertArrayEquals(new int[]{2, 3, 4, 5}, suggestions.suggest(1, 10));
+    }
+
+    @Test
+    void shouldReportLatencyByUserDegree() {
+        int[] friends = IntStream.rangeClosed(1001, 2500).toArray();
+        graph.replaceAll(Map.of(1, friends, 2, friends, 3, new int[]{1001}));
+        FriendSuggestions suggestions = new FriendSuggestions(graph, meterRegistry, 1000, 1000, true, 1000);
+
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(new int[]{2, 3}, suggestions.suggest(1, 10));
+        }
+        suggestions.suggest(3, 10);
+
+        Timer heavy = meterRegistry.get("filmorate.friends.suggestions").tag("degree", "1000+").timer();
+        assertEquals(5, heavy.count());
+        assertEquals(1, meterRegistry.get("filmorate.friends.suggestions").tag("degree", "0-99").timer().count());
+    }
+}
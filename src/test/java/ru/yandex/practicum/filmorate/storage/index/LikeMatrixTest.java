@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LikeMatrixTest {
+    private final FilmLikesDao filmLikesDao = mock(FilmLikesDao.class);
+    private final LikeMatrix matrix = new LikeMatrix(filmLikesDao, 1000, 1000);
+
+    @Test
+    void shouldRecommendFilmsOfMostSimilarUsers() {
+        when(filmLikesDao.getLikedFilmIdsByUser()).thenReturn(Map.of(
+                1, new int[]{10, 11, 12},
+                2, new int[]{10, 11, 12, 20},
+                3, new int[]{10, 21, 22},
+                4, new int[]{30}));
+        matrix.rebuild();
+
+        assertArrayEquals(new int[]{20, 21, 22}, matrix.recommend(1, 10));
+        assertArrayEquals(new int[]{20}, matrix.recommend(1, 1));
+        assertArrayEquals(new int[0], matrix.recommend(4, 10));
+        assertArrayEquals(new int[0], matrix.recommend(99, 10));
+
+        matrix.like(1, 20);
+        matrix.unlike(3, 21);
+        assertArrayEquals(new int[]{22}, matrix.recommend(1, 10));
+    }
+
+    @Test
+    void shouldScanAtMostMaxLikersOfEachFilm() {
+        when(filmLikesDao.getLikedFilmIdsByUser()).thenReturn(Map.of(
+                1, new int[]{10, 11, 12},
+                2, new int[]{10, 11, 12, 20},
+                3, new int[]{10, 21, 22}));
+        LikeMatrix capped = new LikeMatrix(filmLikesDao, 1000, 2);
+        capped.rebuild();
+
+        assertArrayEquals(new int[]{20}, capped.recommend(1, 10));
+    }
+
+    @Test
+    void shouldFindSameNeighboursInParallel() {
+        Random random = new Random(11);
+        Map<Integer, int[]> filmsByUser = new HashMap<>();
+        for (int userId = 1; userId <= 20_000; userId++) {
+            filmsByUser.put(userId, random.ints(20, 1, 2_000).distinct().sorted().toArray());
+        }
+        when(filmLikesDao.getLikedFilmIdsByUser()).thenReturn(filmsByUser);
+        matrix.rebuild();
+
+        assertArrayEquals(recommendSequentially(filmsByUser, 1, 20), matrix.recommend(1, 20));
+    }
+
+    private int[] recommendSequentially(Map<Integer, int[]> filmsByUser, int userId, int limit) {
+        Set<Integer> liked = IntStream.of(filmsByUser.get(userId)).boxed().collect(Collectors.toSet());
+        List<int[]> neighbours = new ArrayList<>();
+        filmsByUser.forEach((otherId, films) -> {
+            int overlap = (int) IntStream.of(films).filter(liked::contains).count();
+            if (otherId != userId && overlap > 0) {
+                neighbours.add(new int[]{otherId, overlap});
+            }
+        });
+        neighbours.sort(Comparator.<int[]>comparingInt(neighbour -> -neighbour[1])
+                .thenComparingInt(neighbour -> neighbour[0]));
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (int[] neighbour : neighbours.subList(0, Math.min(LikeMatrix.NEIGHBOURS, neighbours.size()))) {
+            IntStream.of(filmsByUser.get(neighbour[0]))
+                    .filter(filmId -> !liked.contains(filmId))
+                    .forEach(filmId -> scores.merge(filmId, neighbour[1], Integer::sum));
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+}
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.cache.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PopularityIndexTest {
+    private final LikeWriteBuffer likeWriteBuffer = mock(LikeWriteBuffer.class);
+    private final FilmDao filmDao = mock(FilmDao.class);
+    private final GenreDao genreDao = mock(GenreDao.class);
+    private PopularityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(likeWriteBuffer.getLikeCounts()).thenReturn(Map.of(1, 0, 2, 3, 3, 1));
+        when(filmDao.getReleaseYears()).thenReturn(Map.of(1, 2005, 2, 2005, 3, 1999));
+        when(genreDao.getGenreIdsByFilm()).thenReturn(Map.of(1, new int[]{1, 2}, 3, new int[]{2}));
+        index = new PopularityIndex(likeWriteBuffer, filmDao, genreDao, new SimpleMeterRegistry());
+        index.rebuild();
+    }
+
+    @Test
+    void shouldRankFilmsByLikesThenById() {
+        index.putFilm(4, List.of(), null);
+        assertEquals(List.of(2, 3, 1, 4), index.getTop(10));
+        assertEquals(List.of(2, 3), index.getTop(2));
+    }
+
+    @Test
+    void shouldMoveFilmOnLikeAndUnlike() {
+        index.like(1, () -> { });
+        index.like(1, () -> { });
+        assertEquals(List.of(2, 1, 3), index.getTop(3));
+
+        index.unlike(2, () -> true);
+        index.unlike(2, () -> true);
+        assertEquals(List.of(1, 2, 3), index.getTop(3));
+    }
+
+    @Test
+    void shouldRankFilmsWithinGenreAndYear() {
+        assertEquals(List.of(3, 1), index.getTop(10, 2, null));
+        assertEquals(List.of(2, 1), index.getTop(10, null, 2005));
+        assertEquals(List.of(1), index.getTop(10, 2, 2005));
+        assertEquals(List.of(), index.getTop(10, 6, null));
+
+        index.like(1, () -> { });
+        index.like(1, () -> { });
+        assertEquals(List.of(1, 3), index.getTop(10, 2, null));
+        assertEquals(List.of(2, 1), index.getTop(10, null, 2005));
+    }
+
+    @Test
+    void shouldMoveFilmBetweenBucketsOnUpdate() {
+        index.putFilm(1, List.of(6), 1999);
+
+        assertEquals(List.of(3), index.getTop(10, 2, null));
+        assertEquals(List.of(2), index.getTop(10, null, 2005));
+        assertEquals(List.of(3, 1), index.getTop(10, null, 1999));
+        assertEquals(List.of(1), index.getTop(10, 6, 1999));
+        assertEquals(List.of(2, 3, 1), index.getTop(10));
+
+        index.putFilm(5, List.of(6), null);
+        assertEquals(List.of(1, 5), index.getTop(10, 6, null));
+        assertEquals(List.of(1), index.getTop(10, 6, 1999));
+    }
+
+    @Test
+    void shouldIgnoreUnlikeThatDeletedNothing() {
+        index.unlike(2, () -> false);
+        assertEquals(3, index.getLikes(2));
+    }
+
+    @Test
+    void shouldDropFilmsMissingFromDatabaseOnVerify() {
+        when(likeWriteBuffer.estimateLikeCounts()).thenReturn(Map.of(1, 0, 3, 1));
+        when(likeWriteBuffer.getLikeCounts()).thenReturn(Map.of(1, 0, 3, 1));
+        index.verify();
+
+        assertEquals(List.of(3, 1), index.getTop(10));
+        assertEquals(0, index.getLikes(2));
+    }
+
+    @Test
+    void shouldNotRebuildWhenDriftIsGoneUnderLock() {
+        when(filmDao.getReleaseYears()).thenReturn(Map.of());
+        when(likeWriteBuffer.estimateLikeCounts()).thenReturn(Map.of(1, 1, 2, 3, 3, 1));
+        when(likeWriteBuffer.getLikeCounts()).thenReturn(Map.of(1, 0, 2, 3, 3, 1));
+        index.verify();
+
+        // без перестроения фильм 1 остаётся в корзине своего года
+        assertEquals(List.of(2, 1), index.getTop(10, null, 2005));
+    }
+
+    @Test
+    void shouldNotLoseConcurrentLikes() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        for (int thread = 0; thread < 32; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    index.like(1 + i % 3, () -> { });
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(32 * 334, index.getLikes(1));
+        assertEquals(3 + 32 * 333, index.getLikes(2));
+        assertEquals(1 + 32 * 333, index.getLikes(3));
+        assertEquals(List.of(1, 2, 3), index.getTop(3));
+    }
+}